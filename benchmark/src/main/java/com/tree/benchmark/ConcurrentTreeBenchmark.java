@@ -0,0 +1,187 @@
+package com.tree.benchmark;
+
+import com.tree.AVLTree;
+import com.tree.ConcurrentSkipListTree;
+import com.tree.Node;
+import com.tree.NodeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 多线程共享时的吞吐量:ConcurrentSkipListTree、读写锁保护的AVLTree和ConcurrentSkipListMap<br>
+ * 每次操作按readPercent随机选择查找或写操作(插入和删除各占一半),线程数由-t指定,eg:-t 1,2,4,8
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ConcurrentTreeBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"95"})
+    private int readPercent;
+
+    private ConcurrentSkipListTree<Integer> skipListTree;
+    private AVLTree<Integer> avlTree;
+    private final ReadWriteLock avlLock = new ReentrantReadWriteLock();
+    private ConcurrentSkipListMap<Integer, Integer> skipListMap;
+    private Integer[] keys;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        NodeFactory<Integer> nodeFactory = IntNode::new;
+        skipListTree = new ConcurrentSkipListTree<>(nodeFactory, Comparator.naturalOrder());
+        //使用比较器时查找不修改树的状态,可以在读锁下并发执行
+        avlTree = new AVLTree<>(nodeFactory, Comparator.naturalOrder());
+        skipListMap = new ConcurrentSkipListMap<>();
+        keys = new Integer[size * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        for (int i = 0; i < size; i++) {
+            Integer key = keys[random.nextInt(keys.length)];
+            skipListTree.insert(key);
+            avlTree.insert(key);
+            skipListMap.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Object skipListTree() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Integer key = keys[random.nextInt(keys.length)];
+        int operation = random.nextInt(100);
+        if (operation < readPercent) {
+            return skipListTree.search(key);
+        }
+        if ((operation & 1) == 0) {
+            skipListTree.insert(key);
+        } else {
+            skipListTree.delete(key);
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Object lockedAvlTree() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Integer key = keys[random.nextInt(keys.length)];
+        int operation = random.nextInt(100);
+        if (operation < readPercent) {
+            avlLock.readLock().lock();
+            try {
+                return avlTree.search(key);
+            } finally {
+                avlLock.readLock().unlock();
+            }
+        }
+        avlLock.writeLock().lock();
+        try {
+            if ((operation & 1) == 0) {
+                avlTree.insert(key);
+            } else {
+                avlTree.delete(key);
+            }
+        } finally {
+            avlLock.writeLock().unlock();
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Object skipListMap() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Integer key = keys[random.nextInt(keys.length)];
+        int operation = random.nextInt(100);
+        if (operation < readPercent) {
+            return skipListMap.get(key);
+        }
+        if ((operation & 1) == 0) {
+            skipListMap.put(key, key);
+        } else {
+            skipListMap.remove(key);
+        }
+        return null;
+    }
+
+    private static final class IntNode implements Node<Integer> {
+        private Integer data;
+        private int height;
+        private Node<Integer> leftChild;
+        private Node<Integer> rightChild;
+
+        private IntNode(Integer data) {
+            this.data = data;
+        }
+
+        @Override
+        public Node<Integer> getLeftChild() {
+            return leftChild;
+        }
+
+        @Override
+        public Node<Integer> getRightChild() {
+            return rightChild;
+        }
+
+        @Override
+        public void setRightChild(Node<Integer> rightChild) {
+            this.rightChild = rightChild;
+        }
+
+        @Override
+        public void setLeftChild(Node<Integer> leftChild) {
+            this.leftChild = leftChild;
+        }
+
+        @Override
+        public void setData(Integer data) {
+            this.data = data;
+        }
+
+        @Override
+        public Integer getData() {
+            return data;
+        }
+
+        @Override
+        public void setHeight(int height) {
+            this.height = height;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int compareTo(Node<Integer> o) {
+            return data.compareTo(o.getData());
+        }
+    }
+}
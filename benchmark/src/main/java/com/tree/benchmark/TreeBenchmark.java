@@ -0,0 +1,223 @@
+package com.tree.benchmark;
+
+import com.tree.AVLTree;
+import com.tree.BinarySortTree;
+import com.tree.IntAVLTree;
+import com.tree.Node;
+import com.tree.NodeFactory;
+import com.tree.RedBlackTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AVLTree和RedBlackTree(分别使用比较器或结点比较)、IntAVLTree和TreeMap在插入、删除、查找混合操作下的吞吐量<br>
+ * 数据取自[0, 2 * size),树中预先插入size个数据,插入和删除各占写操作的一半,树的大小保持在size附近
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TreeBenchmark {
+
+    private static final int OPERATIONS = 1 << 16;
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    /* 写操作(插入或删除)所占的百分比*/
+    @Param({"0", "10", "50", "90"})
+    private int writePercent;
+
+    private BinarySortTree<Integer> avlTree;
+    private BinarySortTree<Integer> nodeAvlTree;
+    private BinarySortTree<Integer> redBlackTree;
+    private BinarySortTree<Integer> nodeRedBlackTree;
+    private IntAVLTree intAvlTree;
+    private TreeMap<Integer, Integer> treeMap;
+    /* 每次操作的数据,操作类型保存在低2位:0查找 1插入 2删除*/
+    private int[] operations;
+    private Integer[] keys;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        NodeFactory<Integer> nodeFactory = IntNode::new;
+        avlTree = new AVLTree<>(nodeFactory, Comparator.naturalOrder());
+        nodeAvlTree = new AVLTree<>(nodeFactory, null);
+        redBlackTree = new RedBlackTree<>(nodeFactory, Comparator.naturalOrder());
+        nodeRedBlackTree = new RedBlackTree<>(nodeFactory, null);
+        intAvlTree = new IntAVLTree();
+        treeMap = new TreeMap<>();
+        keys = new Integer[size * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        for (int i = 0; i < size; i++) {
+            Integer key = keys[random.nextInt(keys.length)];
+            avlTree.insert(key);
+            nodeAvlTree.insert(key);
+            redBlackTree.insert(key);
+            nodeRedBlackTree.insert(key);
+            intAvlTree.insert(key);
+            treeMap.put(key, key);
+        }
+        operations = new int[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            int type = random.nextInt(100) >= writePercent ? 0 : 1 + random.nextInt(2);
+            operations[i] = random.nextInt(keys.length) << 2 | type;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void avlTree(Blackhole blackhole) {
+        run(avlTree, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void nodeAvlTree(Blackhole blackhole) {
+        run(nodeAvlTree, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void redBlackTree(Blackhole blackhole) {
+        run(redBlackTree, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void nodeRedBlackTree(Blackhole blackhole) {
+        run(nodeRedBlackTree, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void intAvlTree(Blackhole blackhole) {
+        for (int operation : operations) {
+            int key = operation >>> 2;
+            switch (operation & 3) {
+                case 1:
+                    intAvlTree.insert(key);
+                    break;
+                case 2:
+                    intAvlTree.delete(key);
+                    break;
+                default:
+                    blackhole.consume(intAvlTree.contains(key));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void treeMap(Blackhole blackhole) {
+        for (int operation : operations) {
+            Integer key = keys[operation >>> 2];
+            switch (operation & 3) {
+                case 1:
+                    treeMap.put(key, key);
+                    break;
+                case 2:
+                    treeMap.remove(key);
+                    break;
+                default:
+                    blackhole.consume(treeMap.get(key));
+            }
+        }
+    }
+
+    private void run(BinarySortTree<Integer> tree, Blackhole blackhole) {
+        for (int operation : operations) {
+            Integer key = keys[operation >>> 2];
+            switch (operation & 3) {
+                case 1:
+                    tree.insert(key);
+                    break;
+                case 2:
+                    tree.delete(key);
+                    break;
+                default:
+                    blackhole.consume(tree.search(key));
+            }
+        }
+    }
+
+    private static final class IntNode implements Node<Integer> {
+        private Integer data;
+        private int height;
+        private Node<Integer> leftChild;
+        private Node<Integer> rightChild;
+
+        private IntNode(Integer data) {
+            this.data = data;
+        }
+
+        @Override
+        public Node<Integer> getLeftChild() {
+            return leftChild;
+        }
+
+        @Override
+        public Node<Integer> getRightChild() {
+            return rightChild;
+        }
+
+        @Override
+        public void setRightChild(Node<Integer> rightChild) {
+            this.rightChild = rightChild;
+        }
+
+        @Override
+        public void setLeftChild(Node<Integer> leftChild) {
+            this.leftChild = leftChild;
+        }
+
+        @Override
+        public void setData(Integer data) {
+            this.data = data;
+        }
+
+        @Override
+        public Integer getData() {
+            return data;
+        }
+
+        @Override
+        public void setHeight(int height) {
+            this.height = height;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int compareTo(Node<Integer> o) {
+            return data.compareTo(o.getData());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.util.benchmark;
+
+import com.google.common.collect.Lists;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 生成基准测试使用的敏感词和文本,使用固定的随机种子保证每次运行的数据相同<br>
+ * 敏感词由0x4E00开始的汉字组成;干净文本只使用ASCII字符和0x7000开始的汉字,不包含任何敏感词
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 20170329L;
+    private static final char WORD_ALPHABET_START = 0x4E00;
+    private static final int WORD_ALPHABET_SIZE = 3000;
+    private static final char CLEAN_ALPHABET_START = 0x7000;
+    private static final int CLEAN_ALPHABET_SIZE = 3000;
+    /* 有敏感词的文本中平均每隔多少个字符出现一个敏感词*/
+    private static final int DIRTY_INTERVAL = 100;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 生成count个不重复的敏感词,长度2到6个字符
+     */
+    static List<String> words(int count) {
+        Random random = new Random(SEED);
+        Set<String> words = new LinkedHashSet<>(count * 2);
+        StringBuilder builder = new StringBuilder();
+        while (words.size() < count) {
+            builder.setLength(0);
+            int length = 2 + random.nextInt(5);
+            for (int i = 0; i < length; i++) {
+                builder.append((char) (WORD_ALPHABET_START + random.nextInt(WORD_ALPHABET_SIZE)));
+            }
+            words.add(builder.toString());
+        }
+        return Lists.newArrayList(words);
+    }
+
+    /**
+     * 生成给定长度的文本
+     *
+     * @param kind   文本类型
+     * @param length 文本长度
+     * @param words  敏感词
+     */
+    static String text(TextKind kind, int length, List<String> words) {
+        Random random = new Random(SEED + kind.ordinal());
+        StringBuilder builder = new StringBuilder(length + 8);
+        while (builder.length() < length) {
+            switch (kind) {
+                case CLEAN:
+                    appendClean(builder, random);
+                    break;
+                case DIRTY:
+                    if (random.nextInt(DIRTY_INTERVAL) == 0) {
+                        builder.append(words.get(random.nextInt(words.size())));
+                    } else {
+                        appendClean(builder, random);
+                    }
+                    break;
+                case ADVERSARIAL:
+                    //敏感词去掉最后一个字符,每次都要走到较深的状态后沿失败指针回退
+                    String word = words.get(random.nextInt(words.size()));
+                    builder.append(word, 0, word.length() - 1);
+                    break;
+                default:
+                    throw new IllegalArgumentException(kind.name());
+            }
+        }
+        builder.setLength(length);
+        return builder.toString();
+    }
+
+    private static void appendClean(StringBuilder builder, Random random) {
+        if (random.nextBoolean()) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        } else {
+            builder.append((char) (CLEAN_ALPHABET_START + random.nextInt(CLEAN_ALPHABET_SIZE)));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.util.benchmark;
+
+import com.util.DFASensitiveWordFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词过滤器构建耗时
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FilterBuildBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int dictionarySize;
+
+    private List<String> words;
+
+    @Setup
+    public void setUp() {
+        words = BenchmarkData.words(dictionarySize);
+    }
+
+    @Benchmark
+    public DFASensitiveWordFilter build() {
+        return DFASensitiveWordFilter.build(words, null);
+    }
+}
@@ -0,0 +1,68 @@
+package com.util.benchmark;
+
+import com.util.DFASensitiveWordFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同词库规模、文本长度和文本类型下的扫描耗时,使用-prof gc查看每次操作的内存分配
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FilterScanBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int dictionarySize;
+
+    /* 50个字符的聊天消息到10MB的文档*/
+    @Param({"50", "10000", "10485760"})
+    private int textLength;
+
+    @Param({"CLEAN", "DIRTY", "ADVERSARIAL"})
+    private TextKind textKind;
+
+    private DFASensitiveWordFilter filter;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        List<String> words = BenchmarkData.words(dictionarySize);
+        filter = DFASensitiveWordFilter.build(words, null);
+        text = BenchmarkData.text(textKind, textLength, words);
+    }
+
+    @Benchmark
+    public boolean exist() {
+        return filter.existSensitiveWord(text);
+    }
+
+    @Benchmark
+    public List<String> find() throws IOException {
+        return filter.findSensitiveWords(text);
+    }
+
+    @Benchmark
+    public String shield() throws IOException {
+        return filter.shieldSensitiveWord(text, '*');
+    }
+}
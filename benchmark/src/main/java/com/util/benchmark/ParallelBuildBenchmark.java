@@ -0,0 +1,59 @@
+package com.util.benchmark;
+
+import com.util.CompiledDFA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自动机并行构建耗时随线程数的变化
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ParallelBuildBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int dictionarySize;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    private List<String> words;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        words = BenchmarkData.words(dictionarySize);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public CompiledDFA build() {
+        return CompiledDFA.build(words, pool);
+    }
+}
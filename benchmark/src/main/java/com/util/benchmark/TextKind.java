@@ -0,0 +1,16 @@
+package com.util.benchmark;
+
+/**
+ * 基准测试使用的文本类型
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public enum TextKind {
+    /* 不包含敏感词*/
+    CLEAN,
+    /* 平均每100个字符包含一个敏感词*/
+    DIRTY,
+    /* 由敏感词的前缀组成,几乎不能完整匹配但每个字符都需要状态转移*/
+    ADVERSARIAL
+}
@@ -2,10 +2,16 @@ package com.tree;
 
 import com.google.common.collect.Lists;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Queue;
 
 /**
- * 平衡二叉搜索树(假设叶子结点高度为1)
+ * 平衡二叉搜索树(假设叶子结点高度为1)<br>
+ * 查找、插入和删除都是迭代实现,插入和删除时把经过的结点保存在路径栈中,自底向上重新平衡;
+ * 推荐使用带比较器的构造方法,直接比较数据,查找不创建对象;不指定比较器时,第一次插入的数据实现了Comparable
+ * 则按自然顺序比较(要求结点的compareTo与数据的自然顺序一致),否则插入和删除复用一个比较结点,查找每次创建比较结点<br>
+ * 查找不修改树的任何状态,树不再被修改时可以在多个线程中同时查找
  *
  * @Author zhangweixin
  * @Date 2017/3/24
@@ -18,9 +24,39 @@ public class AVLTree<T> implements BinarySortTree<T> {
 
     private int count;
 
+    private Comparator<? super T> comparator;
+
+    /* 从根结点到当前结点的路径,path[0]为根结点*/
+    private Node<T>[] path;
+
+    /* 没有比较器时插入和删除用于比较的结点,避免每次修改都创建结点;查找不使用*/
+    private Node<T> probe;
+
+    /* 未指定比较器,第一次插入时根据数据类型决定是否使用自然顺序*/
+    private boolean resolveComparator;
+
+    /**
+     * 数据实现了Comparable时按自然顺序比较,否则使用结点的compareTo比较
+     *
+     * @param nodeFactory
+     */
     public AVLTree(NodeFactory<T> nodeFactory) {
+        this(nodeFactory, null);
+        resolveComparator = true;
+    }
+
+    /**
+     * 默认的构造方法
+     *
+     * @param nodeFactory
+     * @param comparator  直接比较数据的比较器,为null时使用结点的compareTo比较
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public AVLTree(NodeFactory<T> nodeFactory, Comparator<? super T> comparator) {
         this.nodeFactory = nodeFactory;
+        this.comparator = comparator;
         count = 0;
+        path = new Node[64];
     }
 
     @Override
@@ -28,28 +64,108 @@ public class AVLTree<T> implements BinarySortTree<T> {
         if (data == null) {
             return;
         }
+        if (resolveComparator) {
+            resolveComparator = false;
+            comparator = naturalOrder(data);
+        }
+
+        Node<T> target = target(data);
+        int depth = 0;
+        int compareValue = 0;
+        Node<T> currentNode = root;
+        while (currentNode != null) {
+            compareValue = compare(currentNode, data, target);
+            if (compareValue == 0) {
+                //忽略相等情况
+                clear(target);
+                return;
+            }
+            push(depth++, currentNode);
+            currentNode = compareValue > 0 ? currentNode.getLeftChild() : currentNode.getRightChild();
+        }
+        clear(target);
 
+        //确定不存在后才创建结点
         Node<T> newNode = nodeFactory.newNode(data);
         newNode.setHeight(1);
-        if (root == null) {
+        count++;
+        if (depth == 0) {
             root = newNode;
-            count++;
             return;
         }
-        root = doInsert(root, newNode);
+        if (compareValue > 0) {
+            path[depth - 1].setLeftChild(newNode);
+        } else {
+            path[depth - 1].setRightChild(newNode);
+        }
+        rebalancePath(depth);
     }
 
 
     @Override
     public Node<T> search(T data) {
-            return doSearch(root, nodeFactory.newNode(data));
+        if (data == null || root == null) {
+            return null;
+        }
+        //查找不写入共享的比较结点,只读的并发查找互不影响
+        Node<T> target = comparator == null ? nodeFactory.newNode(data) : null;
+        Node<T> currentNode = root;
+        while (currentNode != null) {
+            int comparedValue = compare(currentNode, data, target);
+            if (comparedValue < 0) {
+                currentNode = currentNode.getRightChild();
+            } else if (comparedValue > 0) {
+                currentNode = currentNode.getLeftChild();
+            } else {
+                break;
+            }
+        }
+        return currentNode;
     }
 
     @Override
     public void delete(T data) {
-        if (search(data) != null) {
-            root = doDelete(root, nodeFactory.newNode(data));
+        /**
+         * 删除原理:找到要删除结点<br>
+         * 1.如果要删除的结点右子结点存在，找到以右子结点为根的子树中最左子节点，用此节点的值替换要删除的结点的值，
+         *   然后用最左子结点的右子结点替换最左子结点
+         * 2.如果要删除的结点右子结点不存在，直接用左子结点替换要删除的结点
+         * 之后沿路径栈自底向上重新计算结点高度，如果有需要重新平衡树
+         */
+        if (data == null || root == null) {
+            return;
+        }
+        Node<T> target = target(data);
+        int depth = 0;
+        Node<T> currentNode = root;
+        while (currentNode != null) {
+            int comparedValue = compare(currentNode, data, target);
+            if (comparedValue == 0) {
+                break;
+            }
+            push(depth++, currentNode);
+            currentNode = comparedValue > 0 ? currentNode.getLeftChild() : currentNode.getRightChild();
         }
+        clear(target);
+        if (currentNode == null) {
+            return;
+        }
+
+        Node<T> removed = currentNode;
+        Node<T> replacement = currentNode.getLeftChild();
+        if (currentNode.getRightChild() != null) {
+            push(depth++, currentNode);
+            removed = currentNode.getRightChild();
+            while (removed.getLeftChild() != null) {
+                push(depth++, removed);
+                removed = removed.getLeftChild();
+            }
+            currentNode.setData(removed.getData());
+            replacement = removed.getRightChild();
+        }
+        replaceChild(depth == 0 ? null : path[depth - 1], removed, replacement);
+        count--;
+        rebalancePath(depth);
     }
 
     @Override
@@ -122,145 +238,111 @@ public class AVLTree<T> implements BinarySortTree<T> {
     }
 
     /**
-     * 内部真正执行删除结点的方法
+     * 从path[depth - 1]开始自底向上重新计算结点高度，如果有需要重新平衡子树，子树高度不变时停止
      *
-     * @param currentNode
-     * @param target
-     * @return
+     * @param depth 路径中的结点数
      */
-    private Node<T> doDelete(Node<T> currentNode, Node<T> target) {
-        /**
-         * 删除原理:找到要删除结点<br>
-         * 1.如果要删除的结点右子结点存在，找到以右子结点为根的子树中最左子节点，用此节点替换要删除的结点，
-         *   然后在右子树中删除最左子结点(以此递归直到出现2情况停止递归删除结束)
-         * 2.如果要删除的结点右子结点不存在，直接返回左子结点(终止递归，由于右子树本就是一个AVL树不需要计算子树高度重新平衡树直接返回即可)
-         * 在结束本层递归返回上层递归之前除了上面2情况外都需要重新计算结点高度如果有需要，需重新平衡树
-         */
-        int comparedValue = currentNode.compareTo(target);
-        int state = 0;
-        if (comparedValue > 0) {
-            currentNode.setLeftChild(doDelete(currentNode.getLeftChild(), target));
-        } else if (comparedValue < 0) {
-            currentNode.setRightChild(doDelete(currentNode.getRightChild(), target));
-            state = 1;
-        } else {
-            //找到要删除的结点
-            if (currentNode.getRightChild() != null) {
-                Node<T> newRoot = currentNode.getRightChild();
-                while (newRoot.getLeftChild() != null) {
-                    newRoot = newRoot.getLeftChild();
-                }
-                currentNode.setData(newRoot.getData());
-                currentNode.setRightChild(doDelete(currentNode.getRightChild(), currentNode));
-                state = 1;
-            } else {
-                count--;
-                return currentNode.getLeftChild();
+    private void rebalancePath(int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            Node<T> currentNode = path[i];
+            int height = currentNode.getHeight();
+            Node<T> newRoot = rebalance(currentNode);
+            if (newRoot != currentNode) {
+                replaceChild(i == 0 ? null : path[i - 1], currentNode, newRoot);
+            } else if (height == currentNode.getHeight()) {
+                break;
             }
-
         }
-
-        return adjustBalance(state, currentNode);
     }
 
     /**
-     * 删除结点后调整树的平衡
+     * 高度差超过2时旋转平衡子树，否则重新计算结点高度
      *
-     * @param state       0:左子树上删除 1:右子树上删除
      * @param currentNode
-     * @return
+     * @return 子树新的根结点
      */
-    private Node<T> adjustBalance(int state, Node<T> currentNode) {
-        if (Math.abs(getHeightDifference(currentNode.getLeftChild(), currentNode.getRightChild())) >= 2) {
-            //左子树上删除相当于在右子树上插入(左子树高度降低相当于在右子树上插入一个结点导致高度发生变化)
-            if (state == 0) {
-                if (currentNode.getRightChild().getRightChild() != null) {
-                    currentNode = leftRotate(currentNode);
-                } else {
-                    currentNode = rightLeftRotate(currentNode);
-                }
-            } else if (state == 1) {
-                //在右子树上删除相当于在左子树上插入
-                if (currentNode.getLeftChild().getLeftChild() != null) {
-                    currentNode = rightRotate(currentNode);
-                } else {
-                    currentNode = leftRightRotate(currentNode);
-                }
+    private Node<T> rebalance(Node<T> currentNode) {
+        Node<T> left = currentNode.getLeftChild();
+        Node<T> right = currentNode.getRightChild();
+        int difference = getHeightDifference(left, right);
+        if (difference >= 2) {
+            //LL型(删除时左子结点的两棵子树可能等高，同样右旋)
+            if (getHeightDifference(left.getLeftChild(), left.getRightChild()) >= 0) {
+                return rightRotate(currentNode);
             }
-        } else {
-            currentNode.setHeight(getMaxHeight(currentNode.getLeftChild(), currentNode.getRightChild()) + 1);
+            //LR型
+            return leftRightRotate(currentNode);
+        } else if (difference <= -2) {
+            //RR型
+            if (getHeightDifference(right.getRightChild(), right.getLeftChild()) >= 0) {
+                return leftRotate(currentNode);
+            }
+            //RL型
+            return rightLeftRotate(currentNode);
         }
+        currentNode.setHeight(getMaxHeight(left, right) + 1);
         return currentNode;
     }
 
+    /**
+     * 结点与要查找的数据比较,有比较器时直接比较数据,否则用target结点比较
+     */
+    private int compare(Node<T> node, T data, Node<T> target) {
+        return comparator != null ? comparator.compare(node.getData(), data) : node.compareTo(target);
+    }
 
-    private Node<T> doSearch(Node<T> currentNode, Node<T> target) {
-        if (currentNode == null) {
+    /**
+     * 数据实现了Comparable时返回自然顺序比较器,否则返回null
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T> Comparator<? super T> naturalOrder(T data) {
+        return data instanceof Comparable ? (Comparator) Comparator.naturalOrder() : null;
+    }
+
+    /**
+     * 没有比较器时返回装有数据的比较结点,比较结点在插入和删除之间复用
+     */
+    private Node<T> target(T data) {
+        if (comparator != null) {
             return null;
         }
-
-        int comparedValue = currentNode.compareTo(target);
-        if (comparedValue < 0) {
-            return doSearch(currentNode.getRightChild(), target);
-        } else if (comparedValue > 0) {
-            return doSearch(currentNode.getLeftChild(), target);
+        if (probe == null) {
+            probe = nodeFactory.newNode(data);
         } else {
-            return currentNode;
+            probe.setData(data);
         }
+        return probe;
     }
 
     /**
-     * 内部执行插入操作
-     *
-     * @param currentNode 执行插入的结点
-     * @param newNode     新添加结点
-     * @return
+     * 比较结束后清除比较结点中的数据,避免持有已删除数据的引用
      */
-    private Node<T> doInsert(Node<T> currentNode, Node<T> newNode) {
-
-        if (currentNode == null) {
-            count++;
-            return newNode;
+    private void clear(Node<T> target) {
+        if (target != null) {
+            target.setData(null);
         }
+    }
 
-        int compareValue = currentNode.compareTo(newNode);
-        if (compareValue > 0) {
-            currentNode.setLeftChild(doInsert(currentNode.getLeftChild(), newNode));
-        } else if (compareValue < 0) {
-            currentNode.setRightChild(doInsert(currentNode.getRightChild(), newNode));
-        } else {
-            //忽略相等情况
-            return currentNode;
+    private void push(int depth, Node<T> node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, path.length * 2);
         }
+        path[depth] = node;
+    }
 
-        Node<T> left = currentNode.getLeftChild();
-        Node<T> right = currentNode.getRightChild();
-        //超过2调整高度
-        if (Math.abs(getHeightDifference(left, right)) >= 2) {
-            if (compareValue > 0) {
-                //在左子树根节点左边插入时LL型
-                if (currentNode.getLeftChild().compareTo(newNode) > 0) {
-                    currentNode = rightRotate(currentNode);
-                } else {
-                    //LR型
-                    currentNode = leftRightRotate(currentNode);
-                }
-            } else if (compareValue < 0) {
-                //在右子树根节点的右边插入时(RR型)
-                if (currentNode.getRightChild().compareTo(newNode) < 0) {
-                    currentNode = leftRotate(currentNode);
-                } else {
-                    //RL型
-                    currentNode = rightLeftRotate(currentNode);
-                }
-            }
+    /**
+     * 把parent中指向oldChild的引用替换为newChild,parent为null时替换根结点
+     */
+    private void replaceChild(Node<T> parent, Node<T> oldChild, Node<T> newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (parent.getLeftChild() == oldChild) {
+            parent.setLeftChild(newChild);
         } else {
-            currentNode.setHeight(getMaxHeight(left, right) + 1);
+            parent.setRightChild(newChild);
         }
-        return currentNode;
     }
 
-
     /**
      * 获取子树最大高度
      *
@@ -0,0 +1,346 @@
+package com.tree;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * 基本类型平衡二叉搜索树的公共部分:结点为数组下标,左右子结点和高度分别保存在并行数组中,
+ * 关键字数组由子类保存,避免装箱和每个结点一个对象的开销<br>
+ * 下标0为空结点,高度为0,子结点为0表示不存在;删除的结点通过left数组串成空闲链表,插入时优先复用<br>
+ * 查找、插入和删除在这里实现:子类先保存待操作的关键字,树通过compareKey和storeKey访问关键字数组;
+ * 插入和删除时把经过的结点保存在路径栈中,自底向上重新平衡,与{@link AVLTree}相同
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+abstract class ArrayAVLTree {
+
+    static final int NIL = 0;
+
+    int[] left;
+    int[] right;
+    /* 结点高度,空结点高度为0,单个结点高度为1;AVL树高度不超过1.44log(n),byte足够*/
+    byte[] heights;
+    int root = NIL;
+
+    /* 空闲链表头结点,通过left数组链接*/
+    private int free = NIL;
+    /* 从未使用过的第一个下标*/
+    private int size = 1;
+    private int count;
+
+    /* 从根结点到当前结点的路径,path[0]为根结点*/
+    final int[] path = new int[64];
+
+    ArrayAVLTree(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1) + 1;
+        left = new int[capacity];
+        right = new int[capacity];
+        heights = new byte[capacity];
+    }
+
+    /**
+     * 关键字数组扩容
+     *
+     * @param capacity
+     */
+    abstract void growKeys(int capacity);
+
+    /**
+     * 把from结点的关键字复制到to结点
+     */
+    abstract void copyKey(int from, int to);
+
+    /**
+     * 比较待操作的关键字与slot结点的关键字
+     *
+     * @return 待操作的关键字小于、等于、大于结点的关键字时分别返回负数、0、正数
+     */
+    abstract int compareKey(int slot);
+
+    /**
+     * 把待操作的关键字保存到slot结点
+     */
+    abstract void storeKey(int slot);
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    /**
+     * 删除所有结点,保留已分配的数组
+     */
+    public void clear() {
+        root = NIL;
+        free = NIL;
+        size = 1;
+        count = 0;
+    }
+
+    /**
+     * 插入待操作的关键字
+     *
+     * @return 关键字已存在时返回false
+     */
+    boolean insertKey() {
+        int depth = 0;
+        boolean toLeft = false;
+        int node = root;
+        while (node != NIL) {
+            int compared = compareKey(node);
+            if (compared == 0) {
+                return false;
+            }
+            path[depth++] = node;
+            toLeft = compared < 0;
+            node = toLeft ? left[node] : right[node];
+        }
+        node = newNode();
+        storeKey(node);
+        attach(node, depth, toLeft);
+        return true;
+    }
+
+    /**
+     * 查找待操作的关键字
+     *
+     * @return 关键字所在的结点,不存在时返回空结点
+     */
+    int findKey() {
+        int node = root;
+        while (node != NIL) {
+            int compared = compareKey(node);
+            if (compared == 0) {
+                return node;
+            }
+            node = compared < 0 ? left[node] : right[node];
+        }
+        return NIL;
+    }
+
+    /**
+     * 删除待操作的关键字
+     *
+     * @return 关键字不存在时返回false
+     */
+    boolean deleteKey() {
+        int depth = 0;
+        int node = root;
+        while (node != NIL) {
+            int compared = compareKey(node);
+            if (compared == 0) {
+                remove(node, depth);
+                return true;
+            }
+            path[depth++] = node;
+            node = compared < 0 ? left[node] : right[node];
+        }
+        return false;
+    }
+
+    /**
+     * 分配结点,优先复用已删除的结点
+     *
+     * @return 高度为1、没有子结点的结点
+     */
+    private int newNode() {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = left[node];
+        } else {
+            if (size == left.length) {
+                int capacity = left.length * 2;
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                heights = Arrays.copyOf(heights, capacity);
+                growKeys(capacity);
+            }
+            node = size++;
+        }
+        left[node] = NIL;
+        right[node] = NIL;
+        heights[node] = 1;
+        count++;
+        return node;
+    }
+
+    /**
+     * 把新结点链接到path[depth - 1]下,depth为0时成为根结点,之后重新平衡
+     *
+     * @param node
+     * @param depth  路径中的结点数
+     * @param toLeft 是否作为左子结点
+     */
+    private void attach(int node, int depth, boolean toLeft) {
+        if (depth == 0) {
+            root = node;
+            return;
+        }
+        if (toLeft) {
+            left[path[depth - 1]] = node;
+        } else {
+            right[path[depth - 1]] = node;
+        }
+        rebalancePath(depth);
+    }
+
+    /**
+     * 删除结点:右子结点存在时用右子树中最左结点的关键字替换,然后用最左结点的右子结点替换最左结点,
+     * 否则直接用左子结点替换,之后重新平衡
+     *
+     * @param node  要删除的结点
+     * @param depth 路径中node的祖先结点数
+     */
+    private void remove(int node, int depth) {
+        int removed = node;
+        int replacement = left[node];
+        if (right[node] != NIL) {
+            path[depth++] = node;
+            removed = right[node];
+            while (left[removed] != NIL) {
+                path[depth++] = removed;
+                removed = left[removed];
+            }
+            copyKey(removed, node);
+            replacement = right[removed];
+        }
+        replaceChild(depth == 0 ? NIL : path[depth - 1], removed, replacement);
+        left[removed] = free;
+        free = removed;
+        count--;
+        rebalancePath(depth);
+    }
+
+    /**
+     * @return 最小关键字所在的结点
+     * @throws NoSuchElementException 树为空
+     */
+    int minNode() {
+        if (root == NIL) {
+            throw new NoSuchElementException();
+        }
+        int node = root;
+        while (left[node] != NIL) {
+            node = left[node];
+        }
+        return node;
+    }
+
+    /**
+     * @return 最大关键字所在的结点
+     * @throws NoSuchElementException 树为空
+     */
+    int maxNode() {
+        if (root == NIL) {
+            throw new NoSuchElementException();
+        }
+        int node = root;
+        while (right[node] != NIL) {
+            node = right[node];
+        }
+        return node;
+    }
+
+    /**
+     * 从path[depth - 1]开始自底向上重新计算结点高度，如果有需要重新平衡子树，子树高度不变时停止
+     */
+    private void rebalancePath(int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            int node = path[i];
+            int height = heights[node];
+            int newRoot = rebalance(node);
+            if (newRoot != node) {
+                replaceChild(i == 0 ? NIL : path[i - 1], node, newRoot);
+            } else if (height == heights[node]) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 高度差超过2时旋转平衡子树，否则重新计算结点高度
+     *
+     * @return 子树新的根结点
+     */
+    private int rebalance(int node) {
+        int leftChild = left[node];
+        int rightChild = right[node];
+        int difference = heights[leftChild] - heights[rightChild];
+        if (difference >= 2) {
+            if (heights[left[leftChild]] < heights[right[leftChild]]) {
+                //LR型先左旋左子树
+                left[node] = leftRotate(leftChild);
+            }
+            return rightRotate(node);
+        } else if (difference <= -2) {
+            if (heights[right[rightChild]] < heights[left[rightChild]]) {
+                //RL型先右旋右子树
+                right[node] = rightRotate(rightChild);
+            }
+            return leftRotate(node);
+        }
+        updateHeight(node);
+        return node;
+    }
+
+    private int rightRotate(int node) {
+        int newRoot = left[node];
+        left[node] = right[newRoot];
+        right[newRoot] = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    private int leftRotate(int node) {
+        int newRoot = right[node];
+        right[node] = left[newRoot];
+        left[newRoot] = node;
+        updateHeight(node);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    private void updateHeight(int node) {
+        heights[node] = (byte) (Math.max(heights[left[node]], heights[right[node]]) + 1);
+    }
+
+    /**
+     * 把parent中指向oldChild的下标替换为newChild,parent为空结点时替换根结点
+     */
+    private void replaceChild(int parent, int oldChild, int newChild) {
+        if (parent == NIL) {
+            root = newChild;
+        } else if (left[parent] == oldChild) {
+            left[parent] = newChild;
+        } else {
+            right[parent] = newChild;
+        }
+    }
+
+    /**
+     * 按关键字从小到大的顺序遍历结点
+     *
+     * @param visitor 接收结点下标
+     */
+    void visitNodes(IntConsumer visitor) {
+        int[] stack = new int[heights[root] + 1];
+        int top = 0;
+        int node = root;
+        while (node != NIL || top > 0) {
+            while (node != NIL) {
+                stack[top++] = node;
+                node = left[node];
+            }
+            node = stack[--top];
+            visitor.accept(node);
+            node = right[node];
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.tree;
+
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 线程安全的有序集合,以跳表实现{@link BinarySortTree},可在多线程间共享<br>
+ * 查找不加锁:沿各层链表前进,只读取volatile引用,不会被写线程阻塞,读线程之间也没有共享写入;
+ * 插入和删除只锁定各层的前驱结点(删除时还锁定被删除结点),锁定后检查前驱结点未被删除且仍指向后继结点,
+ * 检查失败时重新查找,不同位置的写操作互不影响<br>
+ * 删除时先标记结点再从各层摘除,插入时链接完所有层后才标记为完整;查找只把未标记删除且完整链接的结点视为存在<br>
+ * {@link #search(Object)}返回的结点只用于读取数据,结点高度为该结点在跳表中的层数,左右子结点为null;
+ * {@link #update(Object, Object)}由删除和插入组成,不是原子操作
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public class ConcurrentSkipListTree<T> implements BinarySortTree<T> {
+
+    private static final int MAX_LEVEL = 32;
+
+    private final NodeFactory<T> nodeFactory;
+
+    private final Comparator<? super T> comparator;
+
+    /* 头结点不保存数据,在每一层都排在所有结点之前;链表末尾为null*/
+    private final SkipNode<T> head = new SkipNode<>(null, MAX_LEVEL);
+
+    /* 已使用的最高层数,只增不减,查找从该层开始*/
+    private final AtomicInteger levels = new AtomicInteger(1);
+
+    private final LongAdder count = new LongAdder();
+
+    public ConcurrentSkipListTree(NodeFactory<T> nodeFactory) {
+        this(nodeFactory, null);
+    }
+
+    /**
+     * @param nodeFactory
+     * @param comparator  直接比较数据的比较器,为null时使用结点的compareTo比较,每次操作会创建一个比较结点
+     */
+    public ConcurrentSkipListTree(NodeFactory<T> nodeFactory, Comparator<? super T> comparator) {
+        this.nodeFactory = nodeFactory;
+        this.comparator = comparator;
+    }
+
+    @Override
+    public void insert(T data) {
+        if (data == null) {
+            return;
+        }
+        Node<T> target = comparator == null ? nodeFactory.newNode(data) : null;
+        int topLevel = randomLevel();
+        SkipNode<T>[] preds = newArray(Math.max(topLevel, levels.get()));
+        SkipNode<T>[] succs = newArray(preds.length);
+        while (true) {
+            int fromLevel = Math.max(topLevel, levels.get());
+            if (fromLevel > preds.length) {
+                //重试期间其他线程提高了层数
+                preds = newArray(fromLevel);
+                succs = newArray(fromLevel);
+            }
+            int foundLevel = find(data, target, fromLevel, preds, succs);
+            if (foundLevel >= 0) {
+                SkipNode<T> found = succs[foundLevel];
+                if (!found.marked) {
+                    //忽略相等情况,等待正在插入的结点链接完成
+                    while (!found.fullyLinked) {
+                        Thread.yield();
+                    }
+                    return;
+                }
+                //结点正在被删除,重新查找
+                continue;
+            }
+            int highestLocked = -1;
+            try {
+                boolean valid = true;
+                SkipNode<T> previous = null;
+                for (int level = 0; valid && level < topLevel; level++) {
+                    SkipNode<T> pred = preds[level];
+                    SkipNode<T> succ = succs[level];
+                    if (pred != previous) {
+                        pred.lock.lock();
+                        highestLocked = level;
+                        previous = pred;
+                    }
+                    valid = !pred.marked && (succ == null || !succ.marked) && pred.next(level) == succ;
+                }
+                if (!valid) {
+                    continue;
+                }
+                Node<T> node = target != null ? target : nodeFactory.newNode(data);
+                node.setHeight(topLevel);
+                SkipNode<T> newNode = new SkipNode<>(node, topLevel);
+                //先提高层数再链接,删除时从不低于结点层数的层开始查找
+                if (topLevel > levels.get()) {
+                    levels.accumulateAndGet(topLevel, Math::max);
+                }
+                for (int level = 0; level < topLevel; level++) {
+                    newNode.setNext(level, succs[level]);
+                }
+                for (int level = 0; level < topLevel; level++) {
+                    preds[level].setNext(level, newNode);
+                }
+                newNode.fullyLinked = true;
+                count.increment();
+                return;
+            } finally {
+                unlock(preds, highestLocked);
+            }
+        }
+    }
+
+    @Override
+    public Node<T> search(T data) {
+        if (data == null) {
+            return null;
+        }
+        Node<T> target = comparator == null ? nodeFactory.newNode(data) : null;
+        SkipNode<T> pred = head;
+        for (int level = levels.get() - 1; level >= 0; level--) {
+            SkipNode<T> curr = pred.next(level);
+            while (curr != null) {
+                int comparedValue = compare(curr, data, target);
+                if (comparedValue == 0) {
+                    return curr.fullyLinked && !curr.marked ? curr.node : null;
+                }
+                if (comparedValue > 0) {
+                    break;
+                }
+                pred = curr;
+                curr = pred.next(level);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void delete(T data) {
+        if (data == null) {
+            return;
+        }
+        Node<T> target = comparator == null ? nodeFactory.newNode(data) : null;
+        SkipNode<T>[] preds = newArray(levels.get());
+        SkipNode<T>[] succs = newArray(preds.length);
+        SkipNode<T> victim = null;
+        boolean marked = false;
+        while (true) {
+            int fromLevel = levels.get();
+            if (fromLevel > preds.length) {
+                preds = newArray(fromLevel);
+                succs = newArray(fromLevel);
+            }
+            int foundLevel = find(data, target, fromLevel, preds, succs);
+            if (!marked) {
+                //只删除完整链接且在最高层被找到的结点,否则结点正在插入或删除
+                if (foundLevel < 0) {
+                    return;
+                }
+                victim = succs[foundLevel];
+                if (!victim.fullyLinked || victim.topLevel != foundLevel + 1 || victim.marked) {
+                    return;
+                }
+                victim.lock.lock();
+                if (victim.marked) {
+                    victim.lock.unlock();
+                    return;
+                }
+                victim.marked = true;
+                marked = true;
+            }
+            int highestLocked = -1;
+            try {
+                boolean valid = true;
+                SkipNode<T> previous = null;
+                for (int level = 0; valid && level < victim.topLevel; level++) {
+                    SkipNode<T> pred = preds[level];
+                    if (pred != previous) {
+                        pred.lock.lock();
+                        highestLocked = level;
+                        previous = pred;
+                    }
+                    valid = !pred.marked && pred.next(level) == victim;
+                }
+                if (!valid) {
+                    continue;
+                }
+                for (int level = victim.topLevel - 1; level >= 0; level--) {
+                    preds[level].setNext(level, victim.next(level));
+                }
+                victim.lock.unlock();
+                count.decrement();
+                return;
+            } finally {
+                unlock(preds, highestLocked);
+            }
+        }
+    }
+
+    @Override
+    public void update(T newData, T oldData) {
+        delete(oldData);
+        insert(newData);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return minValue() == null;
+    }
+
+    @Override
+    public int count() {
+        return (int) count.sum();
+    }
+
+    @Override
+    public T maxValue() {
+        while (true) {
+            SkipNode<T> pred = head;
+            for (int level = levels.get() - 1; level >= 0; level--) {
+                SkipNode<T> curr = pred.next(level);
+                while (curr != null) {
+                    pred = curr;
+                    curr = pred.next(level);
+                }
+            }
+            if (pred == head) {
+                return null;
+            }
+            if (pred.fullyLinked && !pred.marked) {
+                return pred.node.getData();
+            }
+            //最后一个结点正在插入或删除,重新查找
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public T minValue() {
+        for (SkipNode<T> curr = head.next(0); curr != null; curr = curr.next(0)) {
+            if (curr.fullyLinked && !curr.marked) {
+                return curr.node.getData();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按从小到大的顺序遍历结点,遍历期间的修改可能可见也可能不可见
+     *
+     * @param visitor
+     */
+    @Override
+    public void visitTree(TreeVisitor<T> visitor) {
+        for (SkipNode<T> curr = head.next(0); curr != null; curr = curr.next(0)) {
+            if (curr.fullyLinked && !curr.marked) {
+                visitor.visitor(new DefaultNodeWrapper<>(curr.node));
+            }
+        }
+    }
+
+    /**
+     * 查找fromLevel以下每一层中最后一个小于data的结点及其后继结点
+     *
+     * @return 找到data的最高层,不存在时返回-1
+     */
+    private int find(T data, Node<T> target, int fromLevel, SkipNode<T>[] preds, SkipNode<T>[] succs) {
+        int foundLevel = -1;
+        SkipNode<T> pred = head;
+        for (int level = fromLevel - 1; level >= 0; level--) {
+            SkipNode<T> curr = pred.next(level);
+            int comparedValue = 1;
+            while (curr != null && (comparedValue = compare(curr, data, target)) < 0) {
+                pred = curr;
+                curr = pred.next(level);
+            }
+            if (foundLevel < 0 && curr != null && comparedValue == 0) {
+                foundLevel = level;
+            }
+            preds[level] = pred;
+            succs[level] = curr;
+        }
+        return foundLevel;
+    }
+
+    private int compare(SkipNode<T> node, T data, Node<T> target) {
+        return comparator != null ? comparator.compare(node.node.getData(), data) : node.node.compareTo(target);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> SkipNode<T>[] newArray(int length) {
+        return new SkipNode[length];
+    }
+
+    /**
+     * 层数服从p=1/2的几何分布
+     */
+    private static int randomLevel() {
+        return Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt() | (1 << (MAX_LEVEL - 1))) + 1;
+    }
+
+    /**
+     * 释放0到highestLocked层中锁定的前驱结点,同一结点是多层的前驱时只锁定一次
+     */
+    private static <T> void unlock(SkipNode<T>[] preds, int highestLocked) {
+        SkipNode<T> previous = null;
+        for (int level = 0; level <= highestLocked; level++) {
+            if (preds[level] != previous) {
+                preds[level].lock.unlock();
+                previous = preds[level];
+            }
+        }
+    }
+
+    /**
+     * 跳表结点,插入和删除时锁定结点的lock
+     */
+    private static final class SkipNode<T> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Node<T> node;
+        private final int topLevel;
+        private final AtomicReferenceArray<SkipNode<T>> next;
+        /* 已开始删除*/
+        private volatile boolean marked;
+        /* 所有层都已链接*/
+        private volatile boolean fullyLinked;
+
+        private SkipNode(Node<T> node, int topLevel) {
+            this.node = node;
+            this.topLevel = topLevel;
+            this.next = new AtomicReferenceArray<>(topLevel);
+        }
+
+        private SkipNode<T> next(int level) {
+            return next.get(level);
+        }
+
+        private void setNext(int level, SkipNode<T> node) {
+            next.set(level, node);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.tree;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * 关键字为int的平衡二叉搜索树,关键字、子结点下标和高度保存在并行数组中,每个关键字约占13字节,
+ * 查找、插入和删除都不创建对象(数组扩容除外)<br>
+ * 相等的关键字只保存一份;非线程安全
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public final class IntAVLTree extends ArrayAVLTree {
+
+    private int[] keys;
+
+    /* 正在查找、插入或删除的关键字*/
+    private int key;
+
+    public IntAVLTree() {
+        this(16);
+    }
+
+    /**
+     * @param initialCapacity 初始结点容量,超过时数组容量翻倍
+     */
+    public IntAVLTree(int initialCapacity) {
+        super(initialCapacity);
+        keys = new int[left.length];
+    }
+
+    /**
+     * 插入关键字
+     *
+     * @param key
+     * @return 关键字已存在时返回false
+     */
+    public boolean insert(int key) {
+        this.key = key;
+        return insertKey();
+    }
+
+    public boolean contains(int key) {
+        this.key = key;
+        return findKey() != NIL;
+    }
+
+    /**
+     * 删除关键字
+     *
+     * @param key
+     * @return 关键字不存在时返回false
+     */
+    public boolean delete(int key) {
+        this.key = key;
+        return deleteKey();
+    }
+
+    /**
+     * 返回最小关键字
+     *
+     * @return
+     * @throws NoSuchElementException 树为空
+     */
+    public int minValue() {
+        return keys[minNode()];
+    }
+
+    /**
+     * 返回最大关键字
+     *
+     * @return
+     * @throws NoSuchElementException 树为空
+     */
+    public int maxValue() {
+        return keys[maxNode()];
+    }
+
+    /**
+     * 按从小到大的顺序遍历关键字
+     *
+     * @param visitor
+     */
+    public void visitTree(IntConsumer visitor) {
+        visitNodes(node -> visitor.accept(keys[node]));
+    }
+
+    @Override
+    void growKeys(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    @Override
+    void copyKey(int from, int to) {
+        keys[to] = keys[from];
+    }
+
+    @Override
+    int compareKey(int slot) {
+        return Integer.compare(key, keys[slot]);
+    }
+
+    @Override
+    void storeKey(int slot) {
+        keys[slot] = key;
+    }
+}
@@ -0,0 +1,125 @@
+package com.tree;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link MappedBPlusTree}中关键字与字节的相互转换,支持固定长度和变长编码<br>
+ * 编码只负责存储,关键字的顺序由树的比较器决定
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public interface KeyCodec<T> {
+
+    /**
+     * 固定长度编码的字节数
+     *
+     * @return 变长编码返回-1
+     */
+    int fixedLength();
+
+    /**
+     * 关键字编码后的字节数,固定长度编码时等于{@link #fixedLength()}
+     *
+     * @param key
+     * @return
+     */
+    int encodedLength(T key);
+
+    /**
+     * 从buffer当前位置写入关键字的编码
+     *
+     * @param key
+     * @param buffer
+     */
+    void encode(T key, ByteBuffer buffer);
+
+    /**
+     * 从buffer当前位置读取length字节并解码
+     *
+     * @param buffer
+     * @param length 编码的字节数
+     * @return
+     */
+    T decode(ByteBuffer buffer, int length);
+
+    static KeyCodec<Integer> intCodec() {
+        return new KeyCodec<Integer>() {
+            @Override
+            public int fixedLength() {
+                return Integer.BYTES;
+            }
+
+            @Override
+            public int encodedLength(Integer key) {
+                return Integer.BYTES;
+            }
+
+            @Override
+            public void encode(Integer key, ByteBuffer buffer) {
+                buffer.putInt(key);
+            }
+
+            @Override
+            public Integer decode(ByteBuffer buffer, int length) {
+                return buffer.getInt();
+            }
+        };
+    }
+
+    static KeyCodec<Long> longCodec() {
+        return new KeyCodec<Long>() {
+            @Override
+            public int fixedLength() {
+                return Long.BYTES;
+            }
+
+            @Override
+            public int encodedLength(Long key) {
+                return Long.BYTES;
+            }
+
+            @Override
+            public void encode(Long key, ByteBuffer buffer) {
+                buffer.putLong(key);
+            }
+
+            @Override
+            public Long decode(ByteBuffer buffer, int length) {
+                return buffer.getLong();
+            }
+        };
+    }
+
+    /**
+     * 字符串按UTF-8变长编码
+     *
+     * @return
+     */
+    static KeyCodec<String> stringCodec() {
+        return new KeyCodec<String>() {
+            @Override
+            public int fixedLength() {
+                return -1;
+            }
+
+            @Override
+            public int encodedLength(String key) {
+                return key.getBytes(StandardCharsets.UTF_8).length;
+            }
+
+            @Override
+            public void encode(String key, ByteBuffer buffer) {
+                buffer.put(key.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public String decode(ByteBuffer buffer, int length) {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
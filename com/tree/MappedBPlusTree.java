@@ -0,0 +1,894 @@
+package com.tree;
+
+import com.google.common.collect.Lists;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * 保存在内存映射文件中的B+树,数据量超过堆内存时使用,重新打开时只读取头页,不需要重建<br>
+ * 文件按4KB分页,第0页为头页(根页、高度、关键字数、空闲页链表),其余为叶子页、内部页或空闲页;
+ * 关键字通过{@link KeyCodec}编码,支持固定长度和变长关键字,页中关键字编码后的总字节数超过页大小时按字节数从中间分裂<br>
+ * 页按需解码后放入按访问顺序淘汰的页缓存,修改只在缓存中进行;每次插入、删除或更新结束时,
+ * 修改过的页的完整内容连同校验和作为一条记录追加到WAL(数据文件同目录下的.wal文件)<br>
+ * 页写回数据文件前先强制刷新WAL,因此数据文件中的页总能由WAL恢复到最后一次完整提交的状态;
+ * WAL超过4MB或调用{@link #checkpoint()}、{@link #close()}时把所有修改写回数据文件并清空WAL。
+ * 打开文件时重放WAL中校验和正确的记录,末尾不完整的记录被忽略<br>
+ * 修改在{@link #sync()}之后持久化;删除后页的编码字节数低于页大小的1/4时与相邻的兄弟页合并,合并后放不下时
+ * 只有一个子页的内部页从兄弟页借一个子页;空页和合并后的页释放到空闲页链表,供之后分配时复用<br>
+ * 查找和遍历只淘汰已写回的页,不写WAL也不写数据文件;未写回的页在下一次提交时淘汰;非线程安全
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public final class MappedBPlusTree<T> implements BinarySortTree<T>, Closeable {
+
+    static final int PAGE_SIZE = 4096;
+
+    private static final int SEGMENT_PAGES = 1024;
+    private static final long SEGMENT_BYTES = (long) PAGE_SIZE * SEGMENT_PAGES;
+    private static final int MAGIC = 0x42505452;
+    private static final int VERSION = 1;
+    private static final int HEADER_PAGE = 0;
+    /* 页头:页类型1字节,关键字数2字节*/
+    private static final int PAGE_HEADER = 3;
+    /* 单个关键字编码后(含变长编码的长度前缀)的最大字节数,保证按字节数分裂后两页都能放下*/
+    private static final int MAX_KEY_BYTES = PAGE_SIZE / 4 - 16;
+    /* WAL超过该大小时执行检查点*/
+    private static final long CHECKPOINT_BYTES = 4L << 20;
+    /* 一条WAL记录最多包含的页数:一次更新(删除加插入)沿路径分裂或合并的页,树高不超过int页号允许的层数*/
+    private static final int MAX_RECORD_PAGES = 128;
+    /* 页的编码字节数低于该值时与兄弟页合并*/
+    private static final int MERGE_BYTES = PAGE_SIZE / 4;
+
+    private static final byte FREE = 0;
+    private static final byte LEAF = 1;
+    private static final byte INNER = 2;
+
+    private final KeyCodec<T> codec;
+    private final Comparator<? super T> comparator;
+    private final NodeFactory<T> nodeFactory;
+    private final int cachePages;
+    private final FileChannel channel;
+    private final FileChannel wal;
+    private final List<MappedByteBuffer> segments = Lists.newArrayList();
+    /* 按访问顺序排列的页缓存*/
+    private final LinkedHashMap<Integer, Page<T>> cache = new LinkedHashMap<>(16, 0.75f, true);
+    /* 当前操作修改的页,提交前不能写回数据文件*/
+    private final Set<Integer> modified = new LinkedHashSet<>();
+    /* 已写入WAL但还未写回数据文件的页*/
+    private final Set<Integer> unflushed = new HashSet<>();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer walBuffer = ByteBuffer.allocate(4 * PAGE_SIZE);
+    private long walSize;
+    private boolean walSynced = true;
+    private boolean closed;
+
+    /* 头页中保存的元数据*/
+    private int root;
+    /* 树的层数,只有根叶子页时为1*/
+    private int height;
+    private long count;
+    private int pageCount;
+    private int freeHead;
+
+    private MappedBPlusTree(Path file, KeyCodec<T> codec, Comparator<? super T> comparator, NodeFactory<T> nodeFactory,
+                            int cachePages) throws IOException {
+        this.codec = codec;
+        this.comparator = comparator;
+        this.nodeFactory = nodeFactory;
+        this.cachePages = Math.max(cachePages, 16);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            wal = FileChannel.open(file.resolveSibling(file.getFileName() + ".wal"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        try {
+            recover();
+            if (channel.size() == 0) {
+                pageCount = 1;
+                Page<T> leaf = allocate(LEAF);
+                root = leaf.id;
+                height = 1;
+                commit();
+                checkpoint();
+            } else {
+                readHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            wal.close();
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 打开或创建B+树文件,文件存在时重放WAL后读取头页
+     *
+     * @param file        数据文件,WAL为同目录下文件名加.wal的文件
+     * @param codec       关键字编码,重新打开时必须与创建时的编码长度一致
+     * @param comparator  关键字的顺序
+     * @param nodeFactory 创建查找和遍历时返回的结点
+     * @param cachePages  页缓存的最大页数(不小于16);上限按页数而不是字节数计算,缓存的页是解码后的关键字列表,
+     *                    每页占用的堆内存随关键字类型变化,通常远大于页在文件中的4KB
+     * @return
+     * @throws IOException 文件不是B+树文件或读写失败
+     */
+    public static <T> MappedBPlusTree<T> open(Path file, KeyCodec<T> codec, Comparator<? super T> comparator,
+                                              NodeFactory<T> nodeFactory, int cachePages) throws IOException {
+        return new MappedBPlusTree<>(file, codec, comparator, nodeFactory, cachePages);
+    }
+
+    /**
+     * 使用最多缓存1024页的页缓存打开或创建B+树文件
+     */
+    public static <T> MappedBPlusTree<T> open(Path file, KeyCodec<T> codec, Comparator<? super T> comparator,
+                                              NodeFactory<T> nodeFactory) throws IOException {
+        return open(file, codec, comparator, nodeFactory, 1024);
+    }
+
+    @Override
+    public void insert(T data) {
+        if (data == null) {
+            return;
+        }
+        checkKey(data);
+        try {
+            doInsert(data);
+            commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Node<T> search(T data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            Page<T> leaf = findLeaf(data, null, null);
+            int position = Collections.binarySearch(leaf.keys, data, comparator);
+            Node<T> node = position >= 0 ? nodeFactory.newNode(leaf.keys.get(position)) : null;
+            evict(false);
+            return node;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void delete(T data) {
+        if (data == null) {
+            return;
+        }
+        try {
+            doDelete(data);
+            commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 删除旧值和插入新值在同一次提交中完成
+     */
+    @Override
+    public void update(T newData, T oldData) {
+        if (newData != null) {
+            checkKey(newData);
+        }
+        try {
+            if (oldData != null) {
+                doDelete(oldData);
+            }
+            if (newData != null) {
+                doInsert(newData);
+            }
+            commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public int count() {
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public T maxValue() {
+        return edgeValue(false);
+    }
+
+    @Override
+    public T minValue() {
+        return edgeValue(true);
+    }
+
+    /**
+     * 按从小到大的顺序遍历关键字
+     *
+     * @param visitor
+     */
+    @Override
+    public void visitTree(TreeVisitor<T> visitor) {
+        try {
+            visit(root, 1, visitor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 强制刷新WAL,之前完成的修改在崩溃后可以恢复
+     *
+     * @throws IOException
+     */
+    public void sync() throws IOException {
+        if (!walSynced) {
+            wal.force(false);
+            walSynced = true;
+        }
+    }
+
+    /**
+     * 把所有修改写回数据文件并刷新到磁盘,然后清空WAL
+     *
+     * @throws IOException
+     */
+    public void checkpoint() throws IOException {
+        for (int id : unflushed) {
+            writePage(id, id == HEADER_PAGE ? null : cache.get(id));
+        }
+        unflushed.clear();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        wal.truncate(0);
+        wal.force(true);
+        walSize = 0;
+        walSynced = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            checkpoint();
+        } finally {
+            wal.close();
+            channel.close();
+        }
+    }
+
+    /**
+     * 不执行检查点直接关闭文件,WAL和数据文件保持当前状态,测试中用于模拟进程崩溃
+     *
+     * @throws IOException
+     */
+    void crash() throws IOException {
+        closed = true;
+        try {
+            wal.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void checkKey(T data) {
+        int bytes = keyBytes(data);
+        if (bytes > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("key too long: " + bytes + " bytes, max: " + MAX_KEY_BYTES);
+        }
+    }
+
+    /**
+     * 从根页查找关键字所在的叶子页,path不为null时记录经过的内部页及子页下标
+     */
+    private Page<T> findLeaf(T data, int[] pathIds, int[] pathIndexes) throws IOException {
+        Page<T> page = page(root);
+        for (int level = 0; level < height - 1; level++) {
+            //第一个大于data的分隔关键字的下标即为子页下标
+            int low = 0;
+            int high = page.keys.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (comparator.compare(page.keys.get(middle), data) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (pathIds != null) {
+                pathIds[level] = page.id;
+                pathIndexes[level] = low;
+            }
+            page = page(page.children.get(low));
+        }
+        return page;
+    }
+
+    private void doInsert(T data) throws IOException {
+        int[] pathIds = new int[height];
+        int[] pathIndexes = new int[height];
+        Page<T> page = findLeaf(data, pathIds, pathIndexes);
+        int position = Collections.binarySearch(page.keys, data, comparator);
+        if (position >= 0) {
+            //忽略相等情况
+            return;
+        }
+        page.keys.add(-position - 1, data);
+        page.bytes += keyBytes(data);
+        modified.add(page.id);
+        count++;
+        modified.add(HEADER_PAGE);
+
+        //页超过页大小时分裂,分隔关键字插入父页,根页分裂时树增加一层
+        for (int level = height - 2; page.bytes > PAGE_SIZE; level--) {
+            Page<T> right = allocate(page.type);
+            T separator = page.type == LEAF ? splitLeaf(page, right) : splitInner(page, right);
+            if (level < 0) {
+                Page<T> newRoot = allocate(INNER);
+                newRoot.keys.add(separator);
+                newRoot.children.add(page.id);
+                newRoot.children.add(right.id);
+                newRoot.bytes = encodedSize(newRoot);
+                root = newRoot.id;
+                height++;
+                break;
+            }
+            Page<T> parent = page(pathIds[level]);
+            int index = pathIndexes[level];
+            parent.keys.add(index, separator);
+            parent.children.add(index + 1, right.id);
+            parent.bytes += keyBytes(separator) + Integer.BYTES;
+            modified.add(parent.id);
+            page = parent;
+        }
+    }
+
+    /**
+     * 按编码字节数从中间分裂叶子页,后一半关键字移到right
+     *
+     * @return right的第一个关键字
+     */
+    private T splitLeaf(Page<T> page, Page<T> right) {
+        int size = page.keys.size();
+        int split = splitIndex(page, 0);
+        split = Math.max(1, Math.min(split, size - 1));
+        List<T> moved = page.keys.subList(split, size);
+        right.keys.addAll(moved);
+        moved.clear();
+        page.bytes = encodedSize(page);
+        right.bytes = encodedSize(right);
+        return right.keys.get(0);
+    }
+
+    /**
+     * 按编码字节数从中间分裂内部页,中间的分隔关键字移到父页,之后的关键字和子页移到right
+     *
+     * @return 移到父页的分隔关键字
+     */
+    private T splitInner(Page<T> page, Page<T> right) {
+        int size = page.keys.size();
+        int split = splitIndex(page, Integer.BYTES);
+        split = Math.max(1, Math.min(split, size - 2));
+        T separator = page.keys.get(split);
+        List<T> movedKeys = page.keys.subList(split + 1, size);
+        right.keys.addAll(movedKeys);
+        movedKeys.clear();
+        page.keys.remove(split);
+        List<Integer> movedChildren = page.children.subList(split + 1, size + 1);
+        right.children.addAll(movedChildren);
+        movedChildren.clear();
+        page.bytes = encodedSize(page);
+        right.bytes = encodedSize(right);
+        return separator;
+    }
+
+    /**
+     * 返回前面的关键字累计字节数达到页中关键字总字节数一半时的下标
+     */
+    private int splitIndex(Page<T> page, int entryBytes) {
+        int half = (page.bytes - PAGE_HEADER) / 2;
+        int bytes = 0;
+        for (int i = 0; i < page.keys.size(); i++) {
+            bytes += keyBytes(page.keys.get(i)) + entryBytes;
+            if (bytes >= half) {
+                return i + 1;
+            }
+        }
+        return page.keys.size();
+    }
+
+    private void doDelete(T data) throws IOException {
+        int[] pathIds = new int[height];
+        int[] pathIndexes = new int[height];
+        Page<T> page = findLeaf(data, pathIds, pathIndexes);
+        int position = Collections.binarySearch(page.keys, data, comparator);
+        if (position < 0) {
+            return;
+        }
+        T removed = page.keys.remove(position);
+        page.bytes -= keyBytes(removed);
+        modified.add(page.id);
+        count--;
+        modified.add(HEADER_PAGE);
+
+        //空页从父页中移除并释放,未满的页与兄弟页合并,父页因此变空或未满时继续向上处理
+        for (int level = height - 2; level >= 0; level--) {
+            Page<T> parent = page(pathIds[level]);
+            int index = pathIndexes[level];
+            if (page.type == LEAF ? page.keys.isEmpty() : page.children.isEmpty()) {
+                release(page);
+                removeChild(parent, index);
+            } else if (page.bytes >= MERGE_BYTES || parent.children.size() < 2 || !merge(parent, index, page)) {
+                break;
+            }
+            page = parent;
+        }
+        Page<T> rootPage = page(root);
+        if (rootPage.type == INNER && rootPage.children.isEmpty()) {
+            rootPage.type = LEAF;
+            rootPage.bytes = PAGE_HEADER;
+            height = 1;
+        }
+        //根页只有一个子页时由子页作为根页
+        while (height > 1 && rootPage.children.size() == 1) {
+            root = rootPage.children.get(0);
+            height--;
+            release(rootPage);
+            rootPage = page(root);
+        }
+    }
+
+    /**
+     * 把未满的页与相邻的兄弟页合并,合并后放不下时只有一个子页的内部页从兄弟页借一个子页
+     *
+     * @param parent 父页
+     * @param index  page在父页中的子页下标
+     * @return 是否合并,合并后父页少了一个子页
+     */
+    private boolean merge(Page<T> parent, int index, Page<T> page) throws IOException {
+        //合并到左边的页,右边的页释放
+        int right = index > 0 ? index : index + 1;
+        Page<T> leftPage = index > 0 ? page(parent.children.get(index - 1)) : page;
+        Page<T> rightPage = index > 0 ? page : page(parent.children.get(index + 1));
+        T separator = parent.keys.get(right - 1);
+        int bytes = leftPage.bytes + rightPage.bytes - PAGE_HEADER + (page.type == INNER ? keyBytes(separator) : 0);
+        if (bytes <= PAGE_SIZE) {
+            if (page.type == INNER) {
+                leftPage.keys.add(separator);
+                leftPage.children.addAll(rightPage.children);
+            }
+            leftPage.keys.addAll(rightPage.keys);
+            leftPage.bytes = encodedSize(leftPage);
+            modified.add(leftPage.id);
+            release(rightPage);
+            removeChild(parent, right);
+            return true;
+        }
+        if (page.type == INNER && page.children.size() == 1) {
+            borrow(parent, right, leftPage, rightPage, page == leftPage);
+        }
+        return false;
+    }
+
+    /**
+     * 只有一个子页的内部页从兄弟页借一个子页,经过父页的分隔关键字轮换;父页放不下新的分隔关键字时不借
+     *
+     * @param right    rightPage在父页中的子页下标
+     * @param fromRight 是否从右边的兄弟页借
+     */
+    private void borrow(Page<T> parent, int right, Page<T> leftPage, Page<T> rightPage, boolean fromRight) {
+        T separator = parent.keys.get(right - 1);
+        T promoted = fromRight ? rightPage.keys.get(0) : leftPage.keys.get(leftPage.keys.size() - 1);
+        if (parent.bytes - keyBytes(separator) + keyBytes(promoted) > PAGE_SIZE) {
+            return;
+        }
+        if (fromRight) {
+            leftPage.keys.add(separator);
+            leftPage.children.add(rightPage.children.remove(0));
+            rightPage.keys.remove(0);
+        } else {
+            rightPage.keys.add(0, separator);
+            rightPage.children.add(0, leftPage.children.remove(leftPage.children.size() - 1));
+            leftPage.keys.remove(leftPage.keys.size() - 1);
+        }
+        parent.keys.set(right - 1, promoted);
+        leftPage.bytes = encodedSize(leftPage);
+        rightPage.bytes = encodedSize(rightPage);
+        parent.bytes = encodedSize(parent);
+        modified.add(leftPage.id);
+        modified.add(rightPage.id);
+        modified.add(parent.id);
+    }
+
+    /**
+     * 返回树中正在使用的页数(不包含头页和空闲页)
+     *
+     * @return
+     */
+    int treePages() throws IOException {
+        int pages = 0;
+        List<Integer> level = Lists.newArrayList(root);
+        for (int depth = 0; depth < height; depth++) {
+            pages += level.size();
+            List<Integer> next = Lists.newArrayList();
+            if (depth < height - 1) {
+                for (int id : level) {
+                    next.addAll(page(id).children);
+                }
+            }
+            level = next;
+        }
+        return pages;
+    }
+
+    /**
+     * 移除内部页的第index个子页及对应的分隔关键字
+     */
+    private void removeChild(Page<T> page, int index) {
+        page.children.remove(index);
+        page.bytes -= Integer.BYTES;
+        if (!page.keys.isEmpty()) {
+            T key = page.keys.remove(Math.max(index - 1, 0));
+            page.bytes -= keyBytes(key);
+        }
+        modified.add(page.id);
+    }
+
+    private T edgeValue(boolean min) {
+        try {
+            Page<T> page = page(root);
+            for (int level = 0; level < height - 1; level++) {
+                page = page(page.children.get(min ? 0 : page.children.size() - 1));
+            }
+            T value = page.keys.isEmpty() ? null : page.keys.get(min ? 0 : page.keys.size() - 1);
+            evict(false);
+            return value;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void visit(int id, int level, TreeVisitor<T> visitor) throws IOException {
+        Page<T> page = page(id);
+        if (level == height) {
+            for (T key : page.keys) {
+                visitor.visitor(new DefaultNodeWrapper<>(nodeFactory.newNode(key)));
+            }
+        } else {
+            for (int child : page.children) {
+                visit(child, level + 1, visitor);
+            }
+        }
+        evict(false);
+    }
+
+    /**
+     * 分配页,优先复用空闲页
+     */
+    private Page<T> allocate(byte type) throws IOException {
+        Page<T> page;
+        if (freeHead != HEADER_PAGE) {
+            page = page(freeHead);
+            freeHead = page.next;
+        } else {
+            page = new Page<>(pageCount++);
+            cache.put(page.id, page);
+        }
+        page.type = type;
+        page.bytes = PAGE_HEADER;
+        modified.add(page.id);
+        modified.add(HEADER_PAGE);
+        return page;
+    }
+
+    /**
+     * 释放页到空闲页链表
+     */
+    private void release(Page<T> page) {
+        page.type = FREE;
+        page.keys.clear();
+        page.children.clear();
+        page.next = freeHead;
+        freeHead = page.id;
+        modified.add(page.id);
+        modified.add(HEADER_PAGE);
+    }
+
+    private Page<T> page(int id) throws IOException {
+        Page<T> page = cache.get(id);
+        if (page == null) {
+            page = decode(id, pageSlice(id));
+            cache.put(id, page);
+        }
+        return page;
+    }
+
+    /**
+     * 把本次操作修改的页作为一条记录追加到WAL:记录长度、(页号、长度、页内容)*、CRC32校验和
+     */
+    private void commit() throws IOException {
+        if (modified.isEmpty()) {
+            return;
+        }
+        int capacity = 2 * Integer.BYTES + modified.size() * (2 * Integer.BYTES + PAGE_SIZE);
+        if (walBuffer.capacity() < capacity) {
+            walBuffer = ByteBuffer.allocate(capacity);
+        }
+        walBuffer.clear();
+        walBuffer.putInt(0);
+        for (int id : modified) {
+            walBuffer.putInt(id);
+            int lengthPosition = walBuffer.position();
+            walBuffer.putInt(0);
+            int start = walBuffer.position();
+            encode(id, id == HEADER_PAGE ? null : cache.get(id), walBuffer);
+            walBuffer.putInt(lengthPosition, walBuffer.position() - start);
+        }
+        int bodyLength = walBuffer.position() - Integer.BYTES;
+        walBuffer.putInt(0, bodyLength);
+        crc.reset();
+        crc.update(walBuffer.array(), Integer.BYTES, bodyLength);
+        walBuffer.putInt((int) crc.getValue());
+        walBuffer.flip();
+        while (walBuffer.hasRemaining()) {
+            walSize += wal.write(walBuffer, walSize);
+        }
+        walSynced = false;
+        unflushed.addAll(modified);
+        modified.clear();
+        evict(true);
+        if (walSize > CHECKPOINT_BYTES) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * 缓存超过最大页数时淘汰最久未访问的页;当前操作修改的页不淘汰
+     *
+     * @param flush 是否淘汰未写回的页(先写回数据文件,写入前强制刷新WAL),只在提交时为true,查找时只淘汰已写回的页
+     */
+    private void evict(boolean flush) throws IOException {
+        Iterator<Map.Entry<Integer, Page<T>>> iterator = cache.entrySet().iterator();
+        while (cache.size() > cachePages && iterator.hasNext()) {
+            Map.Entry<Integer, Page<T>> entry = iterator.next();
+            int id = entry.getKey();
+            if (modified.contains(id)) {
+                continue;
+            }
+            if (unflushed.contains(id)) {
+                if (!flush) {
+                    continue;
+                }
+                unflushed.remove(id);
+                writePage(id, entry.getValue());
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 把页写回数据文件,写入前强制刷新WAL
+     *
+     * @param page 头页时为null
+     */
+    private void writePage(int id, Page<T> page) throws IOException {
+        sync();
+        encode(id, page, pageSlice(id));
+    }
+
+    /**
+     * 打开文件时把WAL中完整的记录按顺序写入数据文件,遇到长度或校验和不正确的记录时停止;
+     * 每次只读取一条记录,占用的内存不超过一条记录的最大长度,与WAL的大小无关
+     */
+    private void recover() throws IOException {
+        long size = wal.size();
+        if (size == 0) {
+            return;
+        }
+        int maxBodyLength = MAX_RECORD_PAGES * (2 * Integer.BYTES + PAGE_SIZE);
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        ByteBuffer record = ByteBuffer.allocate(4 * PAGE_SIZE);
+        long position = 0;
+        while (size - position >= Integer.BYTES) {
+            header.clear();
+            readFully(header, position);
+            int bodyLength = header.getInt(0);
+            if (bodyLength <= 0 || bodyLength > maxBodyLength || size - position - Integer.BYTES < bodyLength + Integer.BYTES) {
+                break;
+            }
+            if (record.capacity() < bodyLength + Integer.BYTES) {
+                record = ByteBuffer.allocate(bodyLength + Integer.BYTES);
+            }
+            record.clear();
+            record.limit(bodyLength + Integer.BYTES);
+            readFully(record, position + Integer.BYTES);
+            crc.reset();
+            crc.update(record.array(), 0, bodyLength);
+            if ((int) crc.getValue() != record.getInt(bodyLength)) {
+                break;
+            }
+            record.flip();
+            record.limit(bodyLength);
+            while (record.hasRemaining()) {
+                int id = record.getInt();
+                int length = record.getInt();
+                ByteBuffer source = record.duplicate();
+                source.limit(source.position() + length);
+                pageSlice(id).put(source);
+                record.position(record.position() + length);
+            }
+            position += Integer.BYTES + bodyLength + Integer.BYTES;
+        }
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        wal.truncate(0);
+        wal.force(true);
+    }
+
+    /**
+     * 从WAL的position位置读满buffer的剩余空间
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = wal.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("unexpected end of WAL");
+            }
+            position += read;
+        }
+    }
+
+    private void readHeader() throws IOException {
+        ByteBuffer buffer = pageSlice(HEADER_PAGE);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != PAGE_SIZE) {
+            throw new IOException("not a B+tree file");
+        }
+        int fixedLength = buffer.getInt();
+        if (fixedLength != codec.fixedLength()) {
+            throw new IOException("key codec mismatch, fixed length in file: " + fixedLength);
+        }
+        root = buffer.getInt();
+        height = buffer.getInt();
+        count = buffer.getLong();
+        pageCount = buffer.getInt();
+        freeHead = buffer.getInt();
+    }
+
+    /**
+     * 返回页在映射文件中的区域,需要时映射新的段(映射时文件自动扩展)
+     */
+    private ByteBuffer pageSlice(int id) throws IOException {
+        int index = id / SEGMENT_PAGES;
+        while (segments.size() <= index) {
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * SEGMENT_BYTES, SEGMENT_BYTES));
+        }
+        ByteBuffer buffer = segments.get(index).duplicate();
+        int offset = (id % SEGMENT_PAGES) * PAGE_SIZE;
+        buffer.position(offset);
+        buffer.limit(offset + PAGE_SIZE);
+        return buffer.slice();
+    }
+
+    private Page<T> decode(int id, ByteBuffer buffer) {
+        Page<T> page = new Page<>(id);
+        page.type = buffer.get();
+        if (page.type == FREE) {
+            page.next = buffer.getInt();
+            return page;
+        }
+        int size = buffer.getShort() & 0xffff;
+        if (page.type == INNER) {
+            for (int i = 0; i <= size; i++) {
+                page.children.add(buffer.getInt());
+            }
+        }
+        int fixedLength = codec.fixedLength();
+        for (int i = 0; i < size; i++) {
+            int length = fixedLength >= 0 ? fixedLength : buffer.getShort() & 0xffff;
+            page.keys.add(codec.decode(buffer, length));
+        }
+        page.bytes = buffer.position();
+        return page;
+    }
+
+    /**
+     * 从buffer当前位置写入页的编码
+     *
+     * @param page 头页时为null
+     */
+    private void encode(int id, Page<T> page, ByteBuffer buffer) {
+        if (id == HEADER_PAGE) {
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(PAGE_SIZE).putInt(codec.fixedLength())
+                    .putInt(root).putInt(height).putLong(count).putInt(pageCount).putInt(freeHead);
+            return;
+        }
+        buffer.put(page.type);
+        if (page.type == FREE) {
+            buffer.putInt(page.next);
+            return;
+        }
+        buffer.putShort((short) page.keys.size());
+        if (page.type == INNER) {
+            for (int child : page.children) {
+                buffer.putInt(child);
+            }
+        }
+        boolean variable = codec.fixedLength() < 0;
+        for (T key : page.keys) {
+            if (variable) {
+                buffer.putShort((short) codec.encodedLength(key));
+            }
+            codec.encode(key, buffer);
+        }
+    }
+
+    private int encodedSize(Page<T> page) {
+        int bytes = PAGE_HEADER;
+        if (page.type == INNER) {
+            bytes += Integer.BYTES * page.children.size();
+        }
+        for (T key : page.keys) {
+            bytes += keyBytes(key);
+        }
+        return bytes;
+    }
+
+    /**
+     * 关键字在页中占用的字节数,变长编码包含2字节长度前缀
+     */
+    private int keyBytes(T key) {
+        int fixedLength = codec.fixedLength();
+        return fixedLength >= 0 ? fixedLength : Short.BYTES + codec.encodedLength(key);
+    }
+
+    /**
+     * 解码后的页,内部页的第i个子页包含大于等于第i-1个、小于第i个分隔关键字的关键字
+     */
+    private static final class Page<T> {
+        private final int id;
+        private byte type;
+        private final List<T> keys = Lists.newArrayList();
+        private final List<Integer> children = Lists.newArrayList();
+        /* 空闲页链表中的下一页*/
+        private int next;
+        /* 编码后的字节数*/
+        private int bytes;
+
+        private Page(int id) {
+            this.id = id;
+        }
+    }
+}
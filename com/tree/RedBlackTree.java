@@ -1,53 +1,554 @@
 package com.tree;
 
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+
 /**
+ * 红黑树,每次插入最多旋转2次,每次删除最多旋转3次,适用于插入删除频繁的场景<br>
+ * 树的结构和颜色保存在内部的红黑结点中,每个红黑结点持有一个nodeFactory创建的数据结点,查找返回数据结点;
+ * 红黑结点没有父结点引用,查找时把经过的结点保存在路径栈中,自底向上调整时从栈中取得父结点和祖父结点<br>
+ * 相等的数据只保存一份,确定数据不存在后才创建结点;删除有两个子结点的结点时把后继结点的数据结点移到该位置后删除后继结点,
+ * 查找返回的数据结点始终保存原来的数据;遍历时返回结点在树中的实际高度<br>
+ * 推荐使用带比较器的构造方法,直接比较数据,查找不创建对象;不指定比较器时,第一次插入的数据实现了Comparable
+ * 则按自然顺序比较(要求结点的compareTo与数据的自然顺序一致),否则插入和删除复用一个比较结点,查找每次创建比较结点<br>
+ * 查找不修改树的任何状态,树不再被修改时可以在多个线程中同时查找
+ *
  * @Author zhangweixin
  * @Date 2017/3/27
  */
 public class RedBlackTree<T> implements BinarySortTree<T> {
+
+    private RedBlackNode<T> root;
+
+    private NodeFactory<T> nodeFactory;
+
+    private int count;
+
+    private Comparator<? super T> comparator;
+
+    /* 从根结点到当前结点的路径,path[0]为根结点*/
+    private RedBlackNode<T>[] path;
+
+    /* 没有比较器时插入和删除用于比较的结点,避免每次修改都创建结点;查找不使用*/
+    private Node<T> probe;
+
+    /* 未指定比较器,第一次插入时根据数据类型决定是否使用自然顺序*/
+    private boolean resolveComparator;
+
+    /**
+     * 数据实现了Comparable时按自然顺序比较,否则使用结点的compareTo比较
+     *
+     * @param nodeFactory
+     */
+    public RedBlackTree(NodeFactory<T> nodeFactory) {
+        this(nodeFactory, null);
+        resolveComparator = true;
+    }
+
+    /**
+     * 默认的构造方法
+     *
+     * @param nodeFactory
+     * @param comparator  直接比较数据的比较器,为null时使用结点的compareTo比较
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RedBlackTree(NodeFactory<T> nodeFactory, Comparator<? super T> comparator) {
+        this.nodeFactory = nodeFactory;
+        this.comparator = comparator;
+        count = 0;
+        path = new RedBlackNode[64];
+    }
+
     @Override
     public void insert(T data) {
+        if (data == null) {
+            return;
+        }
+        if (resolveComparator) {
+            resolveComparator = false;
+            comparator = AVLTree.naturalOrder(data);
+        }
 
+        if (root == null) {
+            root = new RedBlackNode<>(nodeFactory.newNode(data));
+            count++;
+            return;
+        }
+
+        Node<T> target = probe(data);
+        int depth = 0;
+        RedBlackNode<T> currentNode = root;
+        int compareValue;
+        while (true) {
+            push(depth++, currentNode);
+            compareValue = compare(currentNode, data, target);
+            if (compareValue == 0) {
+                //忽略相等情况
+                clear(target);
+                return;
+            }
+            RedBlackNode<T> next = compareValue > 0 ? currentNode.left : currentNode.right;
+            if (next == null) {
+                break;
+            }
+            currentNode = next;
+        }
+        clear(target);
+
+        //确定不存在后才创建结点
+        RedBlackNode<T> newNode = new RedBlackNode<>(nodeFactory.newNode(data));
+        newNode.red = true;
+        if (compareValue > 0) {
+            currentNode.left = newNode;
+        } else {
+            currentNode.right = newNode;
+        }
+        count++;
+        insertFixup(newNode, depth);
     }
 
+    /**
+     * 插入红色结点后调整:叔结点为红色时父、叔结点变黑,祖父结点变红后继续向上调整;
+     * 叔结点为黑色时最多旋转2次结束
+     *
+     * @param node  新插入的结点
+     * @param depth 结点在路径中的下标,父结点为path[depth - 1]
+     */
+    private void insertFixup(RedBlackNode<T> node, int depth) {
+        while (depth > 0 && isRed(path[depth - 1])) {
+            //父结点为红色时一定不是根结点,祖父结点存在
+            RedBlackNode<T> parent = path[depth - 1];
+            RedBlackNode<T> grandparent = path[depth - 2];
+            RedBlackNode<T> greatGrandparent = depth > 2 ? path[depth - 3] : null;
+            if (parent == grandparent.left) {
+                RedBlackNode<T> uncle = grandparent.right;
+                if (isRed(uncle)) {
+                    parent.red = false;
+                    uncle.red = false;
+                    grandparent.red = true;
+                    node = grandparent;
+                    depth -= 2;
+                    continue;
+                }
+                if (node == parent.right) {
+                    //LR型先左旋父结点变换成LL型
+                    parent = leftRotate(parent, grandparent);
+                }
+                parent.red = false;
+                grandparent.red = true;
+                rightRotate(grandparent, greatGrandparent);
+            } else {
+                RedBlackNode<T> uncle = grandparent.left;
+                if (isRed(uncle)) {
+                    parent.red = false;
+                    uncle.red = false;
+                    grandparent.red = true;
+                    node = grandparent;
+                    depth -= 2;
+                    continue;
+                }
+                if (node == parent.left) {
+                    //RL型先右旋父结点变换成RR型
+                    parent = rightRotate(parent, grandparent);
+                }
+                parent.red = false;
+                grandparent.red = true;
+                leftRotate(grandparent, greatGrandparent);
+            }
+            break;
+        }
+        root.red = false;
+    }
 
     @Override
     public Node<T> search(T data) {
+        if (data == null || root == null) {
+            return null;
+        }
+        //查找不写入共享的比较结点,只读的并发查找互不影响
+        Node<T> target = comparator == null ? nodeFactory.newNode(data) : null;
+        RedBlackNode<T> currentNode = root;
+        while (currentNode != null) {
+            int comparedValue = compare(currentNode, data, target);
+            if (comparedValue < 0) {
+                currentNode = currentNode.right;
+            } else if (comparedValue > 0) {
+                currentNode = currentNode.left;
+            } else {
+                return currentNode.node;
+            }
+        }
         return null;
     }
 
     @Override
     public void delete(T data) {
+        if (data == null || root == null) {
+            return;
+        }
+        Node<T> target = probe(data);
+        int depth = 0;
+        RedBlackNode<T> currentNode = root;
+        while (currentNode != null) {
+            int comparedValue = compare(currentNode, data, target);
+            if (comparedValue == 0) {
+                break;
+            }
+            push(depth++, currentNode);
+            currentNode = comparedValue > 0 ? currentNode.left : currentNode.right;
+        }
+        clear(target);
+        if (currentNode == null) {
+            return;
+        }
+
+        //有两个子结点时把后继结点(右子树中最左结点)的数据结点移到该位置,转为删除后继结点
+        if (currentNode.left != null && currentNode.right != null) {
+            RedBlackNode<T> successor = currentNode.right;
+            push(depth++, currentNode);
+            while (successor.left != null) {
+                push(depth++, successor);
+                successor = successor.left;
+            }
+            currentNode.node = successor.node;
+            currentNode = successor;
+        }
+
+        //被删除的结点最多有一个子结点,用子结点替换
+        RedBlackNode<T> child = currentNode.left != null ? currentNode.left : currentNode.right;
+        RedBlackNode<T> parent = depth > 0 ? path[depth - 1] : null;
+        replaceChild(parent, currentNode, child);
+        count--;
+
+        if (currentNode.red) {
+            return;
+        }
+        if (isRed(child)) {
+            child.red = false;
+            return;
+        }
+        deleteFixup(child, depth);
+    }
 
+    /**
+     * 删除黑色结点后,以node为根的子树少了一个黑色结点,向上调整直到补上:
+     * 兄弟结点为红色时旋转1次变换为兄弟结点为黑色的情况,兄弟结点的子结点都为黑色时兄弟结点变红后向上调整,
+     * 否则最多再旋转2次结束
+     *
+     * @param node  缺少一个黑色结点的子树,可能为null
+     * @param depth 子树的根在路径中的下标,父结点为path[depth - 1]
+     */
+    private void deleteFixup(RedBlackNode<T> node, int depth) {
+        while (depth > 0 && !isRed(node)) {
+            RedBlackNode<T> parent = path[depth - 1];
+            RedBlackNode<T> grandparent = depth > 1 ? path[depth - 2] : null;
+            //兄弟子树比node子树多一个黑色结点,因此兄弟结点一定存在
+            if (node == parent.left) {
+                RedBlackNode<T> sibling = parent.right;
+                if (isRed(sibling)) {
+                    sibling.red = false;
+                    parent.red = true;
+                    leftRotate(parent, grandparent);
+                    //原兄弟结点成为父结点的父结点
+                    push(depth, parent);
+                    path[depth - 1] = sibling;
+                    depth++;
+                    grandparent = sibling;
+                    sibling = parent.right;
+                }
+                if (!isRed(sibling.left) && !isRed(sibling.right)) {
+                    sibling.red = true;
+                    node = parent;
+                    depth--;
+                    continue;
+                }
+                if (!isRed(sibling.right)) {
+                    sibling.left.red = false;
+                    sibling.red = true;
+                    sibling = rightRotate(sibling, parent);
+                }
+                sibling.red = parent.red;
+                parent.red = false;
+                sibling.right.red = false;
+                leftRotate(parent, grandparent);
+            } else {
+                RedBlackNode<T> sibling = parent.left;
+                if (isRed(sibling)) {
+                    sibling.red = false;
+                    parent.red = true;
+                    rightRotate(parent, grandparent);
+                    push(depth, parent);
+                    path[depth - 1] = sibling;
+                    depth++;
+                    grandparent = sibling;
+                    sibling = parent.left;
+                }
+                if (!isRed(sibling.left) && !isRed(sibling.right)) {
+                    sibling.red = true;
+                    node = parent;
+                    depth--;
+                    continue;
+                }
+                if (!isRed(sibling.left)) {
+                    sibling.right.red = false;
+                    sibling.red = true;
+                    sibling = leftRotate(sibling, parent);
+                }
+                sibling.red = parent.red;
+                parent.red = false;
+                sibling.left.red = false;
+                rightRotate(parent, grandparent);
+            }
+            return;
+        }
+        if (node != null) {
+            node.red = false;
+        }
     }
 
     @Override
     public void update(T newData, T oldData) {
-
+        delete(oldData);
+        insert(newData);
     }
 
     @Override
     public boolean isEmpty() {
-        return false;
+        return root == null;
     }
 
     @Override
     public int count() {
-        return 0;
+        return count;
     }
 
     @Override
     public T maxValue() {
-        return null;
+        if (root == null) {
+            return null;
+        }
+        RedBlackNode<T> node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.node.getData();
     }
 
     @Override
     public T minValue() {
-        return null;
+        if (root == null) {
+            return null;
+        }
+        RedBlackNode<T> node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.node.getData();
     }
 
+    /**
+     * 按层遍历,结点高度在遍历前自底向上计算,不修改树的状态
+     *
+     * @param visitor
+     */
     @Override
     public void visitTree(TreeVisitor<T> visitor) {
+        //按层排列的结点,子结点总是排在父结点之后
+        List<RedBlackNode<T>> nodes = Lists.newArrayListWithCapacity(count);
+        Queue<RedBlackNode<T>> queue = Lists.newLinkedList();
+        if (root != null) {
+            queue.offer(root);
+        }
+        while (!queue.isEmpty()) {
+            RedBlackNode<T> node = queue.poll();
+            nodes.add(node);
+            if (node.left != null) {
+                queue.offer(node.left);
+            }
+            if (node.right != null) {
+                queue.offer(node.right);
+            }
+        }
+
+        //children[2i]、children[2i + 1]为第i个结点的左右子结点下标,没有子结点时为-1
+        int[] children = new int[nodes.size() * 2];
+        int next = 1;
+        for (int i = 0; i < nodes.size(); i++) {
+            RedBlackNode<T> node = nodes.get(i);
+            children[i * 2] = node.left == null ? -1 : next++;
+            children[i * 2 + 1] = node.right == null ? -1 : next++;
+        }
+        int[] heights = new int[nodes.size()];
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            int left = children[i * 2] < 0 ? 0 : heights[children[i * 2]];
+            int right = children[i * 2 + 1] < 0 ? 0 : heights[children[i * 2 + 1]];
+            heights[i] = Math.max(left, right) + 1;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            visitor.visitor(new RedBlackNodeWrapper<>(nodes.get(i).node.getData(), heights[i]));
+        }
+    }
+
+    /**
+     * 检查根结点为黑色、红色结点的子结点都为黑色、每条路径上的黑色结点数相同
+     *
+     * @return 黑高(从根结点到空结点路径上的黑色结点数,包含空结点)
+     * @throws IllegalStateException 不满足红黑树的性质
+     */
+    int checkBlackHeight() {
+        if (isRed(root)) {
+            throw new IllegalStateException("red root");
+        }
+        return blackHeight(root);
+    }
+
+    private int blackHeight(RedBlackNode<T> node) {
+        if (node == null) {
+            return 1;
+        }
+        if (node.red && (isRed(node.left) || isRed(node.right))) {
+            throw new IllegalStateException("red node with red child: " + node.node.getData());
+        }
+        int left = blackHeight(node.left);
+        if (left != blackHeight(node.right)) {
+            throw new IllegalStateException("unbalanced black height at: " + node.node.getData());
+        }
+        return node.red ? left : left + 1;
+    }
+
+    /**
+     * 结点与要查找的数据比较,有比较器时直接比较数据,否则用target结点比较
+     */
+    private int compare(RedBlackNode<T> node, T data, Node<T> target) {
+        return comparator != null ? comparator.compare(node.node.getData(), data) : node.node.compareTo(target);
+    }
+
+    /**
+     * 没有比较器时返回装有数据的比较结点,比较结点在插入和删除之间复用
+     */
+    private Node<T> probe(T data) {
+        if (comparator != null) {
+            return null;
+        }
+        if (probe == null) {
+            probe = nodeFactory.newNode(data);
+        } else {
+            probe.setData(data);
+        }
+        return probe;
+    }
+
+    /**
+     * 比较结束后清除比较结点中的数据,避免持有已删除数据的引用
+     */
+    private void clear(Node<T> target) {
+        if (target != null) {
+            target.setData(null);
+        }
+    }
+
+    private void push(int depth, RedBlackNode<T> node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, path.length * 2);
+        }
+        path[depth] = node;
+    }
+
+    /**
+     * 空结点为黑色
+     */
+    private static boolean isRed(RedBlackNode<?> node) {
+        return node != null && node.red;
+    }
+
+    /**
+     * 把parent中指向oldChild的引用替换为newChild,parent为null时替换根结点
+     */
+    private void replaceChild(RedBlackNode<T> parent, RedBlackNode<T> oldChild, RedBlackNode<T> newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+    }
+
+    /**
+     * 右旋:node的左子结点成为子树新的根结点
+     *
+     * @param node
+     * @param parent node的父结点,node为根结点时为null
+     * @return 子树新的根结点
+     */
+    private RedBlackNode<T> rightRotate(RedBlackNode<T> node, RedBlackNode<T> parent) {
+        RedBlackNode<T> newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        replaceChild(parent, node, newRoot);
+        return newRoot;
+    }
+
+    /**
+     * 左旋:node的右子结点成为子树新的根结点
+     *
+     * @param node
+     * @param parent node的父结点,node为根结点时为null
+     * @return 子树新的根结点
+     */
+    private RedBlackNode<T> leftRotate(RedBlackNode<T> node, RedBlackNode<T> parent) {
+        RedBlackNode<T> newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        replaceChild(parent, node, newRoot);
+        return newRoot;
+    }
+
+    /**
+     * 树中的结点,颜色只保存在这里,不占用数据结点的高度字段
+     */
+    private static final class RedBlackNode<T> {
+        /* nodeFactory创建的数据结点,查找时返回*/
+        private Node<T> node;
+        private RedBlackNode<T> left;
+        private RedBlackNode<T> right;
+        /* 新结点为红色,根结点为黑色*/
+        private boolean red;
+
+        private RedBlackNode(Node<T> node) {
+            this.node = node;
+        }
+    }
+
+    /**
+     * 遍历时返回的结点,高度为结点在树中的实际高度
+     */
+    private static final class RedBlackNodeWrapper<T> implements NodeWrapper<T> {
+        private final T data;
+        private final int height;
+
+        private RedBlackNodeWrapper(T data, int height) {
+            this.data = data;
+            this.height = height;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public T getData() {
+            return data;
+        }
 
+        @Override
+        public String toString() {
+            return "RedBlackNode{data=" + data + ", height=" + height + '}';
+        }
     }
 }
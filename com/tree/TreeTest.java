@@ -1,7 +1,21 @@
 package com.tree;
 
+import com.google.common.collect.Lists;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * @Author zhangweixin
  * @Date 2017/3/27
@@ -36,6 +50,431 @@ public class TreeTest {
         System.out.println(tree.isEmpty());
     }
 
+    @Test
+    public void testAvlIterative() {
+        NodeFactory<Integer> nodeFactory = data -> {
+            Node<Integer> node = new IntegerNode();
+            node.setData(data);
+            return node;
+        };
+        //比较器为null时使用结点的compareTo比较
+        for (AVLTree<Integer> tree : Arrays.asList(new AVLTree<>(nodeFactory), new AVLTree<>(nodeFactory, Integer::compare),
+                new AVLTree<>(nodeFactory, null))) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            Random random = new Random(11);
+            for (int i = 0; i < 20000; i++) {
+                Integer value = random.nextInt(2000);
+                if (random.nextInt(3) == 0) {
+                    tree.delete(value);
+                    expected.remove(value);
+                } else {
+                    tree.insert(value);
+                    expected.add(value);
+                }
+                Assert.assertEquals(expected.size(), tree.count());
+                Assert.assertEquals(expected.contains(value), tree.search(value) != null);
+                if (i % 500 == 0) {
+                    List<Integer> rootData = Lists.newArrayList();
+                    tree.visitTree(wrapper -> {
+                        if (rootData.isEmpty()) {
+                            rootData.add(wrapper.getData());
+                        }
+                    });
+                    checkAvl(tree.search(rootData.get(0)));
+                }
+            }
+            Assert.assertEquals(expected.first(), tree.minValue());
+            Assert.assertEquals(expected.last(), tree.maxValue());
+        }
+        checkConcurrentSearch(new AVLTree<>(nodeFactory));
+    }
+
+    /**
+     * 树不再被修改后多个线程同时查找,查找不能修改树中共享的状态
+     */
+    private static void checkConcurrentSearch(BinarySortTree<Integer> tree) {
+        for (int i = 0; i < 1000; i += 2) {
+            tree.insert(i);
+        }
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Thread> threads = Lists.newArrayList();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int n = 0; n < 200000; n++) {
+                        int value = ThreadLocalRandom.current().nextInt(1000);
+                        Node<Integer> node = tree.search(value);
+                        if ((node != null) != (value % 2 == 0) || (node != null && node.getData() != value)) {
+                            failed.set(true);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        Assert.assertFalse(failed.get());
+    }
+
+    /**
+     * 检查结点高度正确且左右子树高度差不超过1
+     */
+    private static int checkAvl(Node<Integer> node) {
+        if (node == null) {
+            return 0;
+        }
+        int left = checkAvl(node.getLeftChild());
+        int right = checkAvl(node.getRightChild());
+        Assert.assertTrue(Math.abs(left - right) <= 1);
+        Assert.assertEquals(Math.max(left, right) + 1, node.getHeight());
+        return node.getHeight();
+    }
+
+    @Test
+    public void testConcurrentSkipListTree() throws Exception {
+        NodeFactory<Integer> nodeFactory = data -> {
+            Node<Integer> node = new IntegerNode();
+            node.setData(data);
+            return node;
+        };
+        ConcurrentSkipListTree<Integer> tree = new ConcurrentSkipListTree<>(nodeFactory);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 5000; i++) {
+            Integer value = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                tree.delete(value);
+                expected.remove(value);
+            } else {
+                tree.insert(value);
+                expected.add(value);
+            }
+            Assert.assertEquals(expected.size(), tree.count());
+            Assert.assertEquals(expected.contains(value), tree.search(value) != null);
+        }
+        Assert.assertEquals(expected.first(), tree.minValue());
+        Assert.assertEquals(expected.last(), tree.maxValue());
+        List<Integer> visited = Lists.newArrayList();
+        tree.visitTree(wrapper -> visited.add(wrapper.getData()));
+        Assert.assertEquals(Lists.newArrayList(expected), visited);
+
+        //每个写线程修改互不相交的数据,读线程同时查找
+        ConcurrentSkipListTree<Integer> shared = new ConcurrentSkipListTree<>(nodeFactory, Integer::compare);
+        int writers = 4;
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> threads = Lists.newArrayList();
+        for (int w = 0; w < writers; w++) {
+            int offset = w;
+            threads.add(new Thread(() -> {
+                for (int round = 0; round < 20; round++) {
+                    for (int i = offset; i < 2000; i += writers) {
+                        shared.insert(i);
+                    }
+                    for (int i = offset; i < 2000; i += writers * 2) {
+                        shared.delete(i);
+                    }
+                }
+            }));
+        }
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                shared.search(ThreadLocalRandom.current().nextInt(2000));
+            }
+        });
+        reader.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        running.set(false);
+        reader.join();
+        for (int i = 0; i < 2000; i++) {
+            Assert.assertEquals(i % (writers * 2) >= writers, shared.search(i) != null);
+        }
+        Assert.assertEquals(1000, shared.count());
+    }
+
+    @Test
+    public void testPrimitiveAvlTree() {
+        IntAVLTree intTree = new IntAVLTree(4);
+        LongAVLTree longTree = new LongAVLTree();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 20000; i++) {
+            int value = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                boolean removed = expected.remove(value);
+                Assert.assertEquals(removed, intTree.delete(value));
+                Assert.assertEquals(removed, longTree.delete(value + (1L << 40)));
+            } else {
+                Assert.assertEquals(expected.add(value), intTree.insert(value));
+                longTree.insert(value + (1L << 40));
+            }
+            Assert.assertEquals(expected.size(), intTree.count());
+            Assert.assertEquals(expected.size(), longTree.count());
+            Assert.assertEquals(expected.contains(value), intTree.contains(value));
+            Assert.assertEquals(expected.contains(value), longTree.contains(value + (1L << 40)));
+            if (i % 500 == 0) {
+                checkArrayAvl(intTree, intTree.root);
+            }
+        }
+        Assert.assertEquals((int) expected.first(), intTree.minValue());
+        Assert.assertEquals(expected.last() + (1L << 40), longTree.maxValue());
+        List<Integer> visited = Lists.newArrayList();
+        intTree.visitTree(visited::add);
+        Assert.assertEquals(Lists.newArrayList(expected), visited);
+
+        //删除的结点被复用,数组不再增长
+        int capacity = intTree.left.length;
+        for (int i = 0; i < 10; i++) {
+            for (Integer value : expected) {
+                intTree.delete(value);
+            }
+            Assert.assertTrue(intTree.isEmpty());
+            for (Integer value : expected) {
+                intTree.insert(value);
+            }
+        }
+        Assert.assertEquals(capacity, intTree.left.length);
+    }
+
+    private static int checkArrayAvl(ArrayAVLTree tree, int node) {
+        if (node == ArrayAVLTree.NIL) {
+            return 0;
+        }
+        int left = checkArrayAvl(tree, tree.left[node]);
+        int right = checkArrayAvl(tree, tree.right[node]);
+        Assert.assertTrue(Math.abs(left - right) <= 1);
+        Assert.assertEquals(Math.max(left, right) + 1, tree.heights[node]);
+        return tree.heights[node];
+    }
+
+    @Test
+    public void testMappedBPlusTree() throws IOException {
+        NodeFactory<Integer> nodeFactory = data -> {
+            Node<Integer> node = new IntegerNode();
+            node.setData(data);
+            return node;
+        };
+        Path dir = Files.createTempDirectory("bplus-tree");
+        Path file = dir.resolve("ints.db");
+        Path wal = dir.resolve("ints.db.wal");
+        try {
+            TreeSet<Integer> expected = new TreeSet<>();
+            Random random = new Random(9);
+            //页缓存很小,运行期间不断淘汰并写回页
+            MappedBPlusTree<Integer> tree = MappedBPlusTree.open(file, KeyCodec.intCodec(), Integer::compare, nodeFactory, 16);
+            for (int i = 0; i < 30000; i++) {
+                Integer value = random.nextInt(20000);
+                if (random.nextInt(3) == 0) {
+                    tree.delete(value);
+                    expected.remove(value);
+                } else {
+                    tree.insert(value);
+                    expected.add(value);
+                }
+                Assert.assertEquals(expected.size(), tree.count());
+                Assert.assertEquals(expected.contains(value), tree.search(value) != null);
+            }
+            tree.close();
+
+            tree = MappedBPlusTree.open(file, KeyCodec.intCodec(), Integer::compare, nodeFactory);
+            Assert.assertEquals(expected.size(), tree.count());
+            Assert.assertEquals(expected.first(), tree.minValue());
+            Assert.assertEquals(expected.last(), tree.maxValue());
+            List<Integer> visited = Lists.newArrayList();
+            tree.visitTree(wrapper -> visited.add(wrapper.getData()));
+            Assert.assertEquals(Lists.newArrayList(expected), visited);
+
+            //sync后不执行检查点直接关闭文件再重新打开,模拟崩溃;WAL末尾不完整的记录被忽略
+            for (int i = 0; i < 1000; i++) {
+                tree.update(i + 100000, i);
+                expected.remove(i);
+                expected.add(i + 100000);
+            }
+            tree.sync();
+            tree.crash();
+            Assert.assertTrue(Files.size(wal) > 0);
+            Files.write(wal, new byte[]{0, 0, 1, 0, 7}, StandardOpenOption.APPEND);
+            tree = MappedBPlusTree.open(file, KeyCodec.intCodec(), Integer::compare, nodeFactory);
+            visited.clear();
+            tree.visitTree(wrapper -> visited.add(wrapper.getData()));
+            Assert.assertEquals(Lists.newArrayList(expected), visited);
+            for (Integer value : expected) {
+                tree.delete(value);
+            }
+            Assert.assertTrue(tree.isEmpty());
+            Assert.assertNull(tree.minValue());
+            tree.close();
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(wal);
+        }
+
+        //大量删除后未满的页与兄弟页合并,树中使用的页数随关键字数减少
+        file = dir.resolve("sparse.db");
+        wal = dir.resolve("sparse.db.wal");
+        try (MappedBPlusTree<Integer> tree = MappedBPlusTree.open(file, KeyCodec.intCodec(), Integer::compare, nodeFactory)) {
+            List<Integer> values = Lists.newArrayList();
+            for (int i = 0; i < 30000; i++) {
+                values.add(i);
+            }
+            Collections.shuffle(values, new Random(3));
+            for (Integer value : values) {
+                tree.insert(value);
+            }
+            int pages = tree.treePages();
+            TreeSet<Integer> expected = new TreeSet<>(values.subList(0, 1500));
+            for (Integer value : values.subList(1500, values.size())) {
+                tree.delete(value);
+            }
+            Assert.assertEquals(expected.size(), tree.count());
+            Assert.assertTrue(tree.treePages() * 4 < pages);
+            List<Integer> visited = Lists.newArrayList();
+            tree.visitTree(wrapper -> visited.add(wrapper.getData()));
+            Assert.assertEquals(Lists.newArrayList(expected), visited);
+            for (Integer value : expected) {
+                Assert.assertNotNull(tree.search(value));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(wal);
+        }
+
+        //变长关键字
+        file = dir.resolve("strings.db");
+        wal = dir.resolve("strings.db.wal");
+        NodeFactory<String> stringNodeFactory = StringNode::new;
+        try (MappedBPlusTree<String> tree = MappedBPlusTree.open(file, KeyCodec.stringCodec(), String::compareTo, stringNodeFactory)) {
+            TreeSet<String> expected = new TreeSet<>();
+            Random random = new Random(1);
+            for (int i = 0; i < 5000; i++) {
+                StringBuilder key = new StringBuilder();
+                for (int j = random.nextInt(random.nextInt(10) == 0 ? 300 : 20); j >= 0; j--) {
+                    key.append((char) ('a' + random.nextInt(26)));
+                }
+                key.append(i % 7 == 0 ? "敏感" : "");
+                tree.insert(key.toString());
+                expected.add(key.toString());
+            }
+            List<String> visited = Lists.newArrayList();
+            tree.visitTree(wrapper -> visited.add(wrapper.getData()));
+            Assert.assertEquals(Lists.newArrayList(expected), visited);
+            try {
+                tree.insert(String.join("", Collections.nCopies(2000, "a")));
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals(expected.size(), tree.count());
+            }
+
+            //变长关键字的页合并
+            for (String key : Lists.newArrayList(expected)) {
+                if (random.nextInt(10) != 0) {
+                    tree.delete(key);
+                    expected.remove(key);
+                }
+            }
+            visited.clear();
+            tree.visitTree(wrapper -> visited.add(wrapper.getData()));
+            Assert.assertEquals(Lists.newArrayList(expected), visited);
+            Assert.assertEquals(expected.first(), tree.minValue());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(wal);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void testRedBlackTree() {
+        RedBlackTree<Integer> tree = new RedBlackTree<>(data -> {
+            Node<Integer> node = new IntegerNode();
+            node.setData(data);
+            return node;
+        });
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            Integer value = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                tree.delete(value);
+                expected.remove(value);
+            } else {
+                tree.insert(value);
+                expected.add(value);
+            }
+            Assert.assertEquals(expected.size(), tree.count());
+            Node<Integer> found = tree.search(value);
+            Assert.assertEquals(expected.contains(value), found != null);
+            if (found != null) {
+                Assert.assertEquals(value, found.getData());
+            }
+            if (i % 500 == 0) {
+                checkRedBlack(tree);
+            }
+        }
+        Assert.assertEquals(expected.first(), tree.minValue());
+        Assert.assertEquals(expected.last(), tree.maxValue());
+        for (Integer value : Lists.newArrayList(expected)) {
+            tree.delete(value);
+        }
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertNull(tree.maxValue());
+
+        //不为已存在的数据创建结点;数据实现了Comparable时按自然顺序比较,查找不创建结点,否则只创建一次比较结点
+        int[] created = new int[1];
+        NodeFactory<Integer> countingFactory = data -> {
+            created[0]++;
+            Node<Integer> node = new IntegerNode();
+            node.setData(data);
+            return node;
+        };
+        RedBlackTree<Integer> counted = new RedBlackTree<>(countingFactory);
+        for (int i = 0; i < 100; i++) {
+            counted.insert(i % 10);
+            counted.search(i % 10);
+        }
+        Assert.assertEquals(10, created[0]);
+        created[0] = 0;
+        counted = new RedBlackTree<>(countingFactory, null);
+        for (int i = 0; i < 100; i++) {
+            counted.insert(i % 10);
+            counted.delete(i % 10 + 10);
+        }
+        Assert.assertEquals(10 + 1, created[0]);
+        Assert.assertEquals(5, counted.search(5).getData().intValue());
+        checkConcurrentSearch(new RedBlackTree<>(data -> {
+            Node<Integer> node = new IntegerNode();
+            node.setData(data);
+            return node;
+        }));
+    }
+
+    /**
+     * 检查红黑树的性质,遍历返回的根结点高度不超过2log(n + 1)
+     */
+    private static void checkRedBlack(RedBlackTree<Integer> tree) {
+        Assert.assertTrue(tree.checkBlackHeight() > 0);
+        List<Integer> heights = Lists.newArrayList();
+        tree.visitTree(wrapper -> heights.add(wrapper.getHeight()));
+        Assert.assertEquals(tree.count(), heights.size());
+        if (!heights.isEmpty()) {
+            Assert.assertEquals(Collections.max(heights), heights.get(0));
+            Assert.assertTrue(heights.get(0) <= 2 * (32 - Integer.numberOfLeadingZeros(tree.count() + 1)));
+        }
+    }
+
     static class IntegerNode implements Node<Integer> {
 
         private Integer data;
@@ -100,4 +539,64 @@ public class TreeTest {
                     '}';
         }
     }
+
+    static class StringNode implements Node<String> {
+
+        private String data;
+
+        private int height;
+
+        private Node<String> leftChild;
+
+        private Node<String> rightChild;
+
+        StringNode(String data) {
+            this.data = data;
+        }
+
+        @Override
+        public Node<String> getLeftChild() {
+            return leftChild;
+        }
+
+        @Override
+        public Node<String> getRightChild() {
+            return rightChild;
+        }
+
+        @Override
+        public void setRightChild(Node<String> rightChild) {
+            this.rightChild = rightChild;
+        }
+
+        @Override
+        public void setLeftChild(Node<String> leftChild) {
+            this.leftChild = leftChild;
+        }
+
+        @Override
+        public void setData(String data) {
+            this.data = data;
+        }
+
+        @Override
+        public String getData() {
+            return data;
+        }
+
+        @Override
+        public void setHeight(int height) {
+            this.height = height;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int compareTo(Node<String> o) {
+            return data.compareTo(o.getData());
+        }
+    }
 }
@@ -0,0 +1,173 @@
+package com.util;
+
+import com.google.common.collect.ImmutableListMultimap;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 扫描时对文本字符进行归一化处理,用以识别全角字符、大小写混写以及在敏感词中间插入干扰字符(eg:日*本、日 本)等变形<br>
+ * 所有规则在创建时预先展开为按字符直接寻址的映射表,扫描时每个字符只需一次数组读取,不生成归一化后的文本副本;
+ * 用户映射优先,没有用户映射的字符再依次进行全角转半角和大写转小写,跳过字符按归一化之后的字符判断<br>
+ * 敏感词相邻两个字符之间最多允许maxSkipRun个连续的跳过字符,超过时丢弃已匹配的前缀,
+ * 流式过滤时需要保留的字符数因此不超过最长敏感词长度 * (maxSkipRun + 1)
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public final class CharNormalizer {
+
+    /* 默认允许的最长连续跳过字符数*/
+    public static final int DEFAULT_MAX_SKIP_RUN = 8;
+
+    private final char[] table = new char[Character.MAX_VALUE + 1];
+    /* 归一化之后的字符 -> 映射到该字符的其他原始字符,不包含映射到自身的字符*/
+    private final ImmutableListMultimap<Character, Character> sources;
+    private final long[] skipChars = new long[(Character.MAX_VALUE + 1) >>> 6];
+    private final boolean skipEnabled;
+    private final int maxSkipRun;
+
+    /**
+     * 敏感词字符之间最多允许{@link #DEFAULT_MAX_SKIP_RUN}个连续的跳过字符
+     *
+     * @param widthFolding 是否将全角字符转换为半角字符
+     * @param caseFolding  是否将大写字母转换为小写字母
+     * @param skipChars    扫描时跳过的干扰字符,可以为null
+     * @param mapping      用户自定义的字符映射,可以为null
+     */
+    public CharNormalizer(boolean widthFolding, boolean caseFolding, String skipChars, Map<Character, Character> mapping) {
+        this(widthFolding, caseFolding, skipChars, mapping, DEFAULT_MAX_SKIP_RUN);
+    }
+
+    /**
+     * @param widthFolding 是否将全角字符转换为半角字符
+     * @param caseFolding  是否将大写字母转换为小写字母
+     * @param skipChars    扫描时跳过的干扰字符,可以为null
+     * @param mapping      用户自定义的字符映射,可以为null
+     * @param maxSkipRun   敏感词相邻两个字符之间最多允许的连续跳过字符数
+     */
+    public CharNormalizer(boolean widthFolding, boolean caseFolding, String skipChars, Map<Character, Character> mapping,
+                          int maxSkipRun) {
+        if (maxSkipRun < 0) {
+            throw new IllegalArgumentException("maxSkipRun: " + maxSkipRun);
+        }
+        this.maxSkipRun = maxSkipRun;
+        if (mapping == null) {
+            mapping = Collections.emptyMap();
+        }
+        ImmutableListMultimap.Builder<Character, Character> sources = ImmutableListMultimap.builder();
+        for (int i = 0; i <= Character.MAX_VALUE; i++) {
+            char c = (char) i;
+            Character mapped = mapping.get(c);
+            if (mapped != null) {
+                c = mapped;
+            } else {
+                if (widthFolding) {
+                    c = foldWidth(c);
+                }
+                if (caseFolding) {
+                    c = Character.toLowerCase(c);
+                }
+            }
+            table[i] = c;
+            if (c != i) {
+                sources.put(c, (char) i);
+            }
+        }
+        this.sources = sources.build();
+        boolean skipEnabled = false;
+        if (skipChars != null) {
+            for (int i = 0; i < skipChars.length(); i++) {
+                char c = table[skipChars.charAt(i)];
+                this.skipChars[c >>> 6] |= 1L << c;
+                skipEnabled = true;
+            }
+        }
+        this.skipEnabled = skipEnabled;
+    }
+
+    private static char foldWidth(char c) {
+        if (c >= '！' && c <= '～') {
+            return (char) (c - 0xFEE0);
+        }
+        return c == '　' ? ' ' : c;
+    }
+
+    /**
+     * 返回归一化之后的字符
+     *
+     * @param c
+     * @return
+     */
+    public char normalize(char c) {
+        return table[c];
+    }
+
+    /**
+     * 返回归一化之后等于给定字符的所有原始字符
+     *
+     * @param normalized 归一化之后的字符
+     * @return 给定字符本身不归一化为其他字符时也包含在内
+     */
+    public char[] sources(char normalized) {
+        List<Character> mapped = sources.get(normalized);
+        boolean self = table[normalized] == normalized;
+        char[] result = new char[mapped.size() + (self ? 1 : 0)];
+        for (int i = 0; i < mapped.size(); i++) {
+            result[i] = mapped.get(i);
+        }
+        if (self) {
+            result[mapped.size()] = normalized;
+        }
+        return result;
+    }
+
+    /**
+     * 归一化之后的字符是否是需要跳过的干扰字符
+     *
+     * @param normalized 归一化之后的字符
+     * @return
+     */
+    public boolean isSkipChar(char normalized) {
+        return (skipChars[normalized >>> 6] & (1L << normalized)) != 0;
+    }
+
+    /**
+     * 是否配置了跳过字符
+     *
+     * @return
+     */
+    public boolean isSkipEnabled() {
+        return skipEnabled;
+    }
+
+    /**
+     * 敏感词相邻两个字符之间最多允许的连续跳过字符数
+     *
+     * @return
+     */
+    public int getMaxSkipRun() {
+        return maxSkipRun;
+    }
+
+    /**
+     * 对敏感词进行归一化,构建自动机时使用
+     *
+     * @param word
+     * @return 归一化并去掉跳过字符之后的敏感词
+     */
+    public String normalize(String word) {
+        if (word == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = table[word.charAt(i)];
+            if (!isSkipChar(c)) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,271 @@
+package com.util;
+
+import com.google.common.collect.Lists;
+import com.tree.BinarySortTree;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 编译后的只读敏感词自动机,所有状态及转移保存在基本类型数组中(CSR结构)<br>
+ * 状态按层次遍历顺序编号,开始状态编号为0;状态i的所有转移字符按升序保存在
+ * childChars[childStart[i]..childStart[i+1])中,由于层次遍历时第k个转移恰好到达第k+1个状态,
+ * 转移字符在childChars中的下标加1即为下一状态编号,不需要额外保存<br>
+ * 一次状态转移只需要几次数组读取和一次二分查找,不产生任何对象分配;构建完成后不可修改,可在多线程间共享
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public final class CompiledDFA implements WordDFA {
+
+    /* 开始状态的转移超过该数量时使用按字符直接寻址的转移表*/
+    private static final int DENSE_ROOT_THRESHOLD = 64;
+    /* 敏感词数量超过该值时并行构建*/
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private final int[] childStart;
+    private final char[] childChars;
+    private final int[] failures;
+    private final int[] matchLengths;
+    /* 失败链上(包含自身)最长敏感词结束的状态,没有时为开始状态*/
+    private final int[] outputs;
+    /* 敏感词结束状态对应的敏感词编号,其余状态为-1*/
+    private final int[] wordIds;
+    /* 开始状态按字符直接寻址的转移表,开始状态转移较少时为null*/
+    private final int[] rootStates;
+    private final int maxDepth;
+
+    CompiledDFA(int[] childStart, char[] childChars, int[] failures, int[] matchLengths, int[] outputs,
+                        int[] wordIds, int maxDepth) {
+        this.childStart = childStart;
+        this.childChars = childChars;
+        this.failures = failures;
+        this.matchLengths = matchLengths;
+        this.outputs = outputs;
+        this.wordIds = wordIds;
+        this.maxDepth = maxDepth;
+        int rootChildren = childStart[ROOT + 1] - childStart[ROOT];
+        if (rootChildren >= DENSE_ROOT_THRESHOLD) {
+            rootStates = new int[Character.MAX_VALUE + 1];
+            for (int i = childStart[ROOT]; i < childStart[ROOT + 1]; i++) {
+                rootStates[childChars[i]] = i + 1;
+            }
+        } else {
+            rootStates = null;
+        }
+    }
+
+    /**
+     * 使用给定的敏感词构建自动机,敏感词在列表中的下标即为敏感词编号,重复的敏感词使用第一次出现的编号;
+     * 敏感词较多时在ForkJoinPool.commonPool()上并行构建
+     *
+     * @param words 敏感词,忽略null和空字符串
+     * @return
+     */
+    public static CompiledDFA build(List<String> words) {
+        if (words != null && words.size() >= PARALLEL_THRESHOLD) {
+            return build(words, ForkJoinPool.commonPool());
+        }
+        DFANode root = new DFANode(null);
+        root.setFailure(root);
+        if (words != null) {
+            int wordId = -1;
+            for (String word : words) {
+                wordId++;
+                if (word == null || word.isEmpty()) {
+                    continue;
+                }
+                DFANode state = root;
+                for (char c : word.toCharArray()) {
+                    BinarySortTree<Character> states = state.getNextStates();
+                    states.insert(c);
+                    DFANode next = (DFANode) states.search(c);
+                    next.setDepth(state.getDepth() + 1);
+                    state = next;
+                }
+                if (!state.isIntactWord()) {
+                    state.setIntactWord(true);
+                    state.setWordId(wordId);
+                }
+            }
+        }
+        return compile(root);
+    }
+
+    /**
+     * 使用给定的线程池并行构建自动机:敏感词按首字符分片并行构建子自动机,拼接后逐层并行计算失败指针,
+     * 结果与顺序构建相同
+     *
+     * @param words    敏感词,忽略null和空字符串
+     * @param executor
+     * @return
+     */
+    public static CompiledDFA build(List<String> words, Executor executor) {
+        return ParallelDFABuilder.build(words, executor);
+    }
+
+    /**
+     * 按层次遍历敏感词链构建失败指针并为状态编号,然后把状态链压缩到数组中
+     *
+     * @param root 开始状态
+     * @return
+     */
+    static CompiledDFA compile(DFANode root) {
+        List<DFANode> states = Lists.newArrayList();
+        Queue<DFANode> queue = Lists.newLinkedList();
+        queue.offer(root);
+        int transitions = 0;
+        while (!queue.isEmpty()) {
+            DFANode node = queue.poll();
+            states.add(node);
+            for (DFANode child : node.getChildren()) {
+                DFANode failure = null;
+                if (node != root) {
+                    DFANode temp = node.getFailure();
+                    while ((failure = temp.findNextState(child.getData())) == null && temp != root) {
+                        temp = temp.getFailure();
+                    }
+                }
+                child.setFailure(failure == null ? root : failure);
+                //自身是完整敏感词时取自身长度,否则取失败指针上结束的最长敏感词
+                child.setMatchLength(child.isIntactWord() ? child.getDepth() : child.getFailure().getMatchLength());
+                queue.offer(child);
+                transitions++;
+            }
+        }
+
+        Map<DFANode, Integer> indexes = new IdentityHashMap<>(states.size() * 2);
+        for (int i = 0; i < states.size(); i++) {
+            indexes.put(states.get(i), i);
+        }
+        int count = states.size();
+        int[] childStart = new int[count + 1];
+        char[] childChars = new char[transitions];
+        int[] failures = new int[count];
+        int[] matchLengths = new int[count];
+        int[] outputs = new int[count];
+        int[] wordIds = new int[count];
+        int maxDepth = 0;
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            DFANode node = states.get(i);
+            childStart[i] = position;
+            for (DFANode child : node.getChildren()) {
+                childChars[position++] = child.getData();
+            }
+            failures[i] = indexes.get(node.getFailure());
+            matchLengths[i] = node.getMatchLength();
+            //失败指针编号总是小于当前状态编号
+            outputs[i] = node.isIntactWord() ? i : outputs[failures[i]];
+            wordIds[i] = node.getWordId();
+            maxDepth = Math.max(maxDepth, node.getDepth());
+        }
+        childStart[count] = position;
+        return new CompiledDFA(childStart, childChars, failures, matchLengths, outputs, wordIds, maxDepth);
+    }
+
+    /**
+     * 返回每个状态的转移字符开始位置,供写出镜像文件使用
+     *
+     * @return
+     */
+    int[] childStarts() {
+        return childStart;
+    }
+
+    /**
+     * 返回所有状态的转移字符,供写出镜像文件使用
+     *
+     * @return
+     */
+    char[] childChars() {
+        return childChars;
+    }
+
+    @Override
+    public int next(int state, char c) {
+        while (state != ROOT) {
+            int next = child(state, c);
+            if (next != ROOT) {
+                return next;
+            }
+            state = failures[state];
+        }
+        return rootStates != null ? rootStates[c] : child(ROOT, c);
+    }
+
+    /**
+     * 在状态的转移字符中二分查找输入字符
+     *
+     * @return 下一状态,不存在时返回开始状态
+     */
+    private int child(int state, char c) {
+        int low = childStart[state];
+        int high = childStart[state + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char value = childChars[middle];
+            if (value < c) {
+                low = middle + 1;
+            } else if (value > c) {
+                high = middle - 1;
+            } else {
+                return middle + 1;
+            }
+        }
+        return ROOT;
+    }
+
+    @Override
+    public int find(CharSequence word) {
+        int state = ROOT;
+        for (int i = 0; i < word.length(); i++) {
+            state = child(state, word.charAt(i));
+            if (state == ROOT) {
+                return -1;
+            }
+        }
+        return state != ROOT && outputs[state] == state ? state : -1;
+    }
+
+    @Override
+    public int failure(int state) {
+        return failures[state];
+    }
+
+    @Override
+    public int output(int state) {
+        return outputs[state];
+    }
+
+    @Override
+    public int wordId(int state) {
+        return wordIds[state];
+    }
+
+    @Override
+    public int matchLength(int state) {
+        return matchLengths[state];
+    }
+
+    @Override
+    public int stateCount() {
+        return failures.length;
+    }
+
+    @Override
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = 4L * (childStart.length + failures.length + matchLengths.length + outputs.length + wordIds.length)
+                + 2L * childChars.length;
+        return rootStates == null ? bytes : bytes + 4L * rootStates.length;
+    }
+}
@@ -1,9 +1,12 @@
 package com.util;
 
+import com.google.common.collect.Lists;
 import com.tree.AVLTree;
 import com.tree.BinarySortTree;
 import com.tree.Node;
 
+import java.util.List;
+
 /**
  * @Author zhangweixin
  * @Date 2017/3/24
@@ -14,8 +17,12 @@ public class DFANode implements Node<Character> {
     private BinarySortTree<Character> nextStates;
     private int height;
     private boolean intactWord;
+    private int wordId = -1;
     private DFANode rightChild;
     private DFANode leftChild;
+    private DFANode failure;
+    private int depth;
+    private int matchLength;
 
     public DFANode(Character data) {
         this.data = data;
@@ -75,7 +82,43 @@ public class DFANode implements Node<Character> {
      * @return
      */
     public BinarySortTree<Character> getNextStates() {
-        return nextStates == null ? new AVLTree<>(new DFANodeFactory()) : nextStates;
+        if (nextStates == null) {
+            nextStates = new AVLTree<>(new DFANodeFactory());
+        }
+        return nextStates;
+    }
+
+    /**
+     * 是否存在下一步要匹配的状态
+     *
+     * @return
+     */
+    public boolean hasNextStates() {
+        return nextStates != null && !nextStates.isEmpty();
+    }
+
+    /**
+     * 按字符顺序返回所有下一步要匹配的状态
+     *
+     * @return
+     */
+    public List<DFANode> getChildren() {
+        List<DFANode> children = Lists.newArrayList();
+        if (hasNextStates()) {
+            nextStates.visitTree(wrapper -> children.add((DFANode) nextStates.search(wrapper.getData())));
+            children.sort(DFANode::compareTo);
+        }
+        return children;
+    }
+
+    /**
+     * 查找输入字符对应的下一个状态,不会创建后继状态集合
+     *
+     * @param c
+     * @return 不存在返回null
+     */
+    public DFANode findNextState(char c) {
+        return nextStates == null ? null : (DFANode) nextStates.search(c);
     }
 
     public void setNextStates(BinarySortTree<Character> nextStates) {
@@ -105,4 +148,56 @@ public class DFANode implements Node<Character> {
     public void setIntactWord(boolean intactWord) {
         this.intactWord = intactWord;
     }
+
+    /**
+     * 获取失败指针:当前状态匹配失败时转向的状态(当前字符串在自动机中存在的最长真后缀)
+     *
+     * @return
+     */
+    public DFANode getFailure() {
+        return failure;
+    }
+
+    public void setFailure(DFANode failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * 结点在敏感词链中的深度(即从开始状态到该结点经过的字符数)
+     *
+     * @return
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * 以该状态结尾的最长敏感词长度,没有敏感词以该状态结尾时为0
+     *
+     * @return
+     */
+    public int getMatchLength() {
+        return matchLength;
+    }
+
+    public void setMatchLength(int matchLength) {
+        this.matchLength = matchLength;
+    }
+
+    /**
+     * 以该结点结尾的完整敏感词编号,不是完整敏感词时为-1
+     *
+     * @return
+     */
+    public int getWordId() {
+        return wordId;
+    }
+
+    public void setWordId(int wordId) {
+        this.wordId = wordId;
+    }
 }
@@ -1,19 +1,39 @@
 package com.util;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
-import com.tree.AVLTree;
-import com.tree.BinarySortTree;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.springframework.util.CollectionUtils;
 
 import java.io.CharArrayWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * 基于变体DFA(状态查找)算法高效敏感词过滤;对于一个敏感词是其中另一个敏感词的前缀这种情况(eg:日本和日本人)<br>
- * 以前缀敏感词匹配为准即当一段文本包含日本人时日本这个敏感词会被处理掉丢下人(因为日本和日本人都是敏感词)
+ * 以前缀敏感词匹配为准即当一段文本包含日本人时日本这个敏感词会被处理掉丢下人(因为日本和日本人都是敏感词)<br>
+ * 状态之间通过Aho-Corasick失败指针连接,匹配失败时沿失败指针转移而不回溯文本,每个字符只处理一次;
+ * 多个敏感词交叠时以最先结束的敏感词为准,同一位置结束的取最长的一个,匹配成功后从下一个字符重新开始匹配
  *
  * @Author zhangweixin
  * @Date 2017/3/29
@@ -21,98 +41,817 @@ import java.util.concurrent.locks.ReentrantLock;
 public class DFASensitiveWordFilter {
 
 
-    private static final int NO_INIT = 1;
-    private static final int INITING = 2;
-    private static final int INITED = 3;
-    private static volatile int state = NO_INIT;
-    private static volatile List<String> sensitiveWords = Lists.newLinkedList();
-    private static volatile DFASensitiveWordFilter instance;
-    private static ReentrantLock initLock = new ReentrantLock();
-    private static ReentrantLock updateLock = new ReentrantLock();
+    /* 增量修改累计超过该数量时在后台合并重建过滤器*/
+    private static final int COMPACT_THRESHOLD = 1024;
+    /* 流式处理时每次读取的字符数*/
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    /* 按字符直接寻址的位图长度*/
+    private static final int BITMAP_SIZE = (Character.MAX_VALUE + 1) >>> 6;
+    private static volatile List<String> sensitiveWords = Collections.emptyList();
+    private static volatile List<String> sensitivePatterns = Collections.emptyList();
+    private static volatile CharNormalizer normalizer;
+    private static volatile SensitiveWordMetrics currentMetrics;
+    private static volatile boolean minimized;
+    /* 当前发布的过滤器快照,扫描线程只读取不加锁,重建完成后整体替换*/
+    private static final AtomicReference<DFASensitiveWordFilter> instance = new AtomicReference<>();
+    /* 已提交但还未开始执行的重建任务,期间的重建请求合并到该任务*/
+    private static final AtomicReference<CompletableFuture<DFASensitiveWordFilter>> pendingReload = new AtomicReference<>();
+    private static final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("sensitive-word-reload-%d").setDaemon(true).build());
 
+    /**
+     * 设置敏感词,下一次重建时生效;之前通过addWord/removeWord进行的增量修改在重建后丢弃
+     *
+     * @param words
+     */
     public static void setSensitiveWords(List<String> words) {
         if (!CollectionUtils.isEmpty(words)) {
-            doSetSensitiveWords(words);
+            sensitiveWords = Collections.unmodifiableList(Lists.newArrayList(words));
         }
     }
 
+    /**
+     * 设置敏感词模式,下一次重建时生效,模式与敏感词在同一遍扫描中匹配,语法见{@link SensitivePatterns}
+     *
+     * @param patterns 为null时清空模式
+     * @throws IllegalArgumentException 模式语法不正确
+     */
+    public static void setSensitivePatterns(List<String> patterns) {
+        List<String> copy = patterns == null ? Collections.emptyList() : Collections.unmodifiableList(Lists.newArrayList(patterns));
+        SensitivePatterns.compile(copy, null);
+        sensitivePatterns = copy;
+    }
+
+    /**
+     * 设置扫描时的字符归一化规则,下一次重建时生效,为null时不做归一化
+     *
+     * @param charNormalizer
+     */
+    public static void setNormalizer(CharNormalizer charNormalizer) {
+        normalizer = charNormalizer;
+    }
+
+    /**
+     * 设置重建当前发布的过滤器时是否构建最小化自动机(后缀相同的敏感词共享状态),下一次重建时生效;
+     * 适用于大量敏感词共享后缀的词库,以扫描时同时跟踪多个匹配为代价减少自动机占用的内存<br>
+     * 只作用于{@link #reload()}和{@link #getInstance()}发布的过滤器,独立构建的过滤器通过
+     * {@link #build(List, List, CharNormalizer, boolean)}的参数指定
+     *
+     * @param minimizedDfa
+     * @see MinimizedDFA
+     */
+    public static void setMinimized(boolean minimizedDfa) {
+        minimized = minimizedDfa;
+    }
+
+    /**
+     * 设置运行指标,之后构建的过滤器(包括通过{@link #build(List, CharNormalizer)}构建的过滤器)开始统计,为null时不统计
+     *
+     * @param sensitiveWordMetrics
+     */
+    public static void setMetrics(SensitiveWordMetrics sensitiveWordMetrics) {
+        currentMetrics = sensitiveWordMetrics;
+    }
+
+    /**
+     * 使用当前敏感词在后台重新构建过滤器,构建完成前getInstance继续返回旧的过滤器
+     */
     public static void reset() {
-        try {
-            initLock.lock();
-            state = NO_INIT;
-        } finally {
-            initLock.unlock();
+        reload();
+    }
+
+    /**
+     * 使用当前敏感词在后台线程重新构建过滤器,构建完成后原子替换当前过滤器;
+     * 已经持有旧过滤器的扫描不受影响,在旧过滤器上执行完成
+     *
+     * @return 新过滤器发布后完成的Future
+     */
+    public static CompletableFuture<DFASensitiveWordFilter> reload() {
+        do {
+            CompletableFuture<DFASensitiveWordFilter> pending = pendingReload.get();
+            if (pending != null) {
+                //还未开始的重建任务执行时会读取最新的敏感词,直接复用
+                return pending;
+            }
+            CompletableFuture<DFASensitiveWordFilter> future = new CompletableFuture<>();
+            if (pendingReload.compareAndSet(null, future)) {
+                reloadExecutor.execute(() -> {
+                    if (!pendingReload.compareAndSet(future, null)) {
+                        //执行前已有镜像发布,排在镜像之前的重建请求不再执行
+                        future.complete(instance.get());
+                        return;
+                    }
+                    try {
+                        future.complete(doReload());
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+                return future;
+            }
+        } while (true);
+    }
+
+    /**
+     * 重建期间发布了其他敏感词配置的过滤器(eg:加载了镜像)时丢弃重建结果,保留之后发布的过滤器
+     */
+    private static DFASensitiveWordFilter doReload() {
+        List<String> words = sensitiveWords;
+        List<String> patterns = sensitivePatterns;
+        DFASensitiveWordFilter current = instance.get();
+        if (current == null || current.sourceWords != words) {
+            //重新设置了敏感词,基于旧敏感词的增量修改一起丢弃
+            DFASensitiveWordFilter filter = new DFASensitiveWordFilter(words, words, patterns, normalizer, minimized);
+            return instance.updateAndGet(latest -> latest == current || sameSource(current, latest) ? filter : latest);
         }
+        //在当前生效的敏感词(包含增量修改)上重建,重建期间发生的增量修改重新应用到新的过滤器上
+        DFASensitiveWordFilter rebuilt = new DFASensitiveWordFilter(words, current.getWords(), patterns, normalizer, minimized);
+        return instance.updateAndGet(latest -> {
+            if (latest == current) {
+                return rebuilt;
+            }
+            return sameSource(current, latest) ? rebuilt.replay(current, latest) : latest;
+        });
+    }
+
+    /**
+     * latest是否由current经过增量修改得到
+     */
+    private static boolean sameSource(DFASensitiveWordFilter current, DFASensitiveWordFilter latest) {
+        return current != null && latest != null && latest.sourceWords == current.sourceWords;
+    }
+
+    /**
+     * 将敏感词离线编译为镜像文件,供{@link #loadImage(Path)}直接映射加载;
+     * 敏感词按当前的归一化规则编译,加载时需要设置相同的归一化规则
+     *
+     * @param words 敏感词
+     * @param image 镜像文件
+     * @throws IOException
+     */
+    public static void compileImage(List<String> words, Path image) throws IOException {
+        MappedDFA.write(CompiledDFA.build(normalize(words, normalizer)), words, image);
+    }
+
+    /**
+     * 映射并校验镜像文件,使用镜像中的敏感词替换当前敏感词并在调用线程中直接发布,不需要重新构建自动机,也不等待重建;
+     * 之前提交但还未开始的重建不再执行,正在进行的重建发现已发布新的敏感词配置后丢弃结果,不会覆盖镜像
+     *
+     * @param image 由{@link #compileImage(List, Path)}生成的镜像文件
+     * @return 新发布的过滤器
+     * @throws IOException 镜像文件格式、版本或校验和不正确
+     */
+    public static DFASensitiveWordFilter loadImage(Path image) throws IOException {
+        MappedDFA dfa = MappedDFA.load(image);
+        List<String> words = dfa.words();
+        DFASensitiveWordFilter filter = new DFASensitiveWordFilter(words, words, sensitivePatterns, normalizer, false, dfa);
+        sensitiveWords = words;
+        //排在镜像之前的重建任务开始执行时发现已不是等待中的任务,之后的重建请求提交新的任务
+        pendingReload.set(null);
+        instance.set(filter);
+        return filter;
     }
 
     public static List<String> getSensitiveWords() {
         List<String> copy = Lists.newLinkedList();
-        try {
-            updateLock.lock();
-            copy.addAll(sensitiveWords);
-        } finally {
-            updateLock.unlock();
-        }
+        copy.addAll(sensitiveWords);
         return copy;
     }
 
-    private static void doSetSensitiveWords(List<String> words) {
+    /**
+     * 使用给定的敏感词构建一个独立的过滤器,不影响当前发布的过滤器,多个词库可通过{@link SensitiveWordRegistry}管理
+     *
+     * @param words          敏感词
+     * @param charNormalizer 字符归一化规则,为null时不做归一化
+     * @return
+     */
+    public static DFASensitiveWordFilter build(List<String> words, CharNormalizer charNormalizer) {
+        return build(words, Collections.emptyList(), charNormalizer);
+    }
+
+    /**
+     * 使用给定的敏感词和敏感词模式构建一个独立的过滤器,不影响当前发布的过滤器
+     *
+     * @param words          敏感词
+     * @param patterns       敏感词模式,语法见{@link SensitivePatterns}
+     * @param charNormalizer 字符归一化规则,为null时不做归一化
+     * @return
+     * @throws IllegalArgumentException 模式语法不正确
+     */
+    public static DFASensitiveWordFilter build(List<String> words, List<String> patterns, CharNormalizer charNormalizer) {
+        return build(words, patterns, charNormalizer, false);
+    }
+
+    /**
+     * 使用给定的敏感词和敏感词模式构建一个独立的过滤器,不影响当前发布的过滤器
+     *
+     * @param words          敏感词
+     * @param patterns       敏感词模式,语法见{@link SensitivePatterns}
+     * @param charNormalizer 字符归一化规则,为null时不做归一化
+     * @param minimized      是否构建最小化自动机,见{@link MinimizedDFA}
+     * @return
+     * @throws IllegalArgumentException 模式语法不正确
+     */
+    public static DFASensitiveWordFilter build(List<String> words, List<String> patterns, CharNormalizer charNormalizer,
+                                               boolean minimized) {
+        List<String> copy = words == null ? Collections.emptyList() : Collections.unmodifiableList(Lists.newArrayList(words));
+        return new DFASensitiveWordFilter(copy, copy, patterns, charNormalizer, minimized);
+    }
+
+    /**
+     * 返回当前发布的过滤器,不会等待正在进行的重建;
+     * 还没有发布过任何过滤器时在重建线程中构建,并发的首次调用共享同一个构建任务并等待其完成
+     *
+     * @return
+     */
+    public static DFASensitiveWordFilter getInstance() {
+        DFASensitiveWordFilter filter = instance.get();
+        if (filter != null) {
+            return filter;
+        }
         try {
-            updateLock.lock();
-            sensitiveWords.clear();
-            sensitiveWords.addAll(words);
-        } finally {
-            updateLock.unlock();
+            reload().join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
         }
+        return instance.get();
     }
 
-    public static DFASensitiveWordFilter getInstance() {
-        return doCreateInstance();
+    /* 过滤器对应的敏感词配置,重新设置敏感词之前重建过滤器时保留增量修改*/
+    private final List<String> sourceWords;
+    /* 构建基础自动机使用的敏感词*/
+    private final List<String> baseWords;
+    /* 编译后的敏感词自动机,使用最小化自动机时为null*/
+    private final WordDFA dfa;
+    /* 最小化的敏感词自动机,没有启用最小化时为null*/
+    private final MinimizedDFA minimizedDfa;
+    /* 已从基础自动机中删除的敏感词结束状态(最小化自动机中为敏感词的字典序序号),升序排列*/
+    private final int[] removedStates;
+    /* 增量添加的敏感词(都不在基础自动机中)*/
+    private final List<String> addedWords;
+    /* 增量添加的敏感词构建的自动机,没有增量敏感词时为null*/
+    private final CompiledDFA overlay;
+    /* 敏感词模式,与自动机在同一遍扫描中匹配,没有模式时为null*/
+    private final SensitivePatterns patterns;
+    /* 扫描时的字符归一化规则,为null时不做归一化*/
+    private final CharNormalizer charNormalizer;
+    /* 基础敏感词归一化之后的首字符位图(包含模式可能匹配的第一个字符)*/
+    private final long[] baseStartChars;
+    /* 基础敏感词首字符位图展开后的原始字符位图,没有归一化规则时与baseStartChars相同*/
+    private final long[] rawBaseStartChars;
+    /* 归一化之前可能作为敏感词首字符的原始字符位图(包含增量敏感词),扫描时据此跳过不可能开始匹配的字符*/
+    private final long[] startChars;
+    /* 按需构建的UTF-8字节自动机*/
+    private volatile Utf8SensitiveWordFilter utf8Filter;
+    /* 运行指标,为null时不统计*/
+    private final SensitiveWordMetrics metrics;
+
+    private DFASensitiveWordFilter(List<String> sourceWords, List<String> sensitiveWords, List<String> patterns,
+                                   CharNormalizer charNormalizer, boolean minimized) {
+        this(sourceWords, sensitiveWords, patterns, charNormalizer, minimized, null);
+    }
+
+    /**
+     * @param minimized 是否构建最小化自动机
+     * @param dfa       已编译的自动机,为null时使用敏感词构建
+     */
+    private DFASensitiveWordFilter(List<String> sourceWords, List<String> sensitiveWords, List<String> patterns,
+                                   CharNormalizer charNormalizer, boolean minimized, WordDFA dfa) {
+        long start = System.nanoTime();
+        List<String> normalized = normalize(sensitiveWords, charNormalizer);
+        this.sourceWords = sourceWords;
+        this.baseWords = sensitiveWords;
+        this.charNormalizer = charNormalizer;
+        this.patterns = SensitivePatterns.compile(patterns, charNormalizer);
+        this.minimizedDfa = dfa == null && minimized ? MinimizedDFA.build(normalized) : null;
+        this.dfa = dfa == null && minimizedDfa == null ? CompiledDFA.build(normalized) : dfa;
+        removedStates = new int[0];
+        addedWords = Collections.emptyList();
+        overlay = null;
+        long[] bitmap = startChars(normalized, new long[BITMAP_SIZE]);
+        baseStartChars = this.patterns == null ? bitmap : this.patterns.startChars(bitmap);
+        rawBaseStartChars = rawStartChars(baseStartChars, charNormalizer);
+        startChars = rawBaseStartChars;
+        metrics = currentMetrics;
+        if (metrics != null) {
+            metrics.recordBuild(System.nanoTime() - start, stateCount(), estimatedBytes());
+        }
+    }
+
+    private DFASensitiveWordFilter(DFASensitiveWordFilter source, int[] removedStates, List<String> addedWords) {
+        this.sourceWords = source.sourceWords;
+        this.baseWords = source.baseWords;
+        this.charNormalizer = source.charNormalizer;
+        this.dfa = source.dfa;
+        this.minimizedDfa = source.minimizedDfa;
+        this.patterns = source.patterns;
+        this.removedStates = removedStates;
+        this.baseStartChars = source.baseStartChars;
+        this.rawBaseStartChars = source.rawBaseStartChars;
+        this.metrics = source.metrics;
+        if (addedWords == source.addedWords) {
+            this.addedWords = source.addedWords;
+            this.overlay = source.overlay;
+            this.startChars = source.startChars;
+        } else {
+            long start = System.nanoTime();
+            List<String> normalized = normalize(addedWords, charNormalizer);
+            this.addedWords = Collections.unmodifiableList(addedWords);
+            this.overlay = addedWords.isEmpty() ? null : CompiledDFA.build(normalized);
+            this.startChars = addRawStartChars(normalized, rawBaseStartChars, charNormalizer);
+            if (metrics != null) {
+                metrics.recordBuild(System.nanoTime() - start, stateCount(), estimatedBytes());
+            }
+        }
+    }
+
+    /**
+     * 将敏感词的首字符加入位图
+     */
+    private static long[] startChars(List<String> words, long[] bitmap) {
+        if (words != null) {
+            for (String word : words) {
+                if (word != null && !word.isEmpty()) {
+                    char c = word.charAt(0);
+                    bitmap[c >>> 6] |= 1L << c;
+                }
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * 将归一化之后的首字符位图展开为原始字符位图,扫描时不需要先对每个字符归一化再判断
+     */
+    private static long[] rawStartChars(long[] startChars, CharNormalizer charNormalizer) {
+        if (charNormalizer == null) {
+            return startChars;
+        }
+        long[] bitmap = new long[BITMAP_SIZE];
+        for (int i = 0; i <= Character.MAX_VALUE; i++) {
+            char c = charNormalizer.normalize((char) i);
+            if ((startChars[c >>> 6] & (1L << c)) != 0) {
+                bitmap[i >>> 6] |= 1L << i;
+            }
+        }
+        return bitmap;
     }
 
-    private static DFASensitiveWordFilter doCreateInstance() {
-        if (state != INITED) {
-            try {
-                initLock.lock();
-                if (state != INITED) {
-                    init();
+    /**
+     * 在原始字符位图的副本中加入增量敏感词的首字符,只展开归一化为这些首字符的原始字符
+     *
+     * @param words 归一化之后的增量敏感词
+     */
+    private static long[] addRawStartChars(List<String> words, long[] rawStartChars, CharNormalizer charNormalizer) {
+        if (words.isEmpty()) {
+            return rawStartChars;
+        }
+        long[] bitmap = rawStartChars.clone();
+        if (charNormalizer == null) {
+            return startChars(words, bitmap);
+        }
+        for (String word : words) {
+            if (word != null && !word.isEmpty()) {
+                for (char c : charNormalizer.sources(word.charAt(0))) {
+                    bitmap[c >>> 6] |= 1L << c;
                 }
-            } finally {
-                initLock.unlock();
             }
         }
-        return instance;
+        return bitmap;
     }
 
-    private static void init() {
-        state = INITING;
-        DFASensitiveWordFilter temp = new DFASensitiveWordFilter(getSensitiveWords());
-        instance = temp;
-        state = INITED;
+    /**
+     * 按归一化规则处理敏感词,处理后的敏感词下标不变
+     */
+    private static List<String> normalize(List<String> words, CharNormalizer charNormalizer) {
+        if (charNormalizer == null || words == null) {
+            return words;
+        }
+        List<String> normalized = Lists.newArrayListWithCapacity(words.size());
+        for (String word : words) {
+            normalized.add(charNormalizer.normalize(word));
+        }
+        return normalized;
     }
 
-    /* 敏感词开始状态集合*/
-    private BinarySortTree<Character> dfaStates;
+    private int find(String word) {
+        String normalized = charNormalizer == null ? word : charNormalizer.normalize(word);
+        return minimizedDfa != null ? minimizedDfa.find(normalized) : dfa.find(normalized);
+    }
 
-    private DFASensitiveWordFilter(List<String> sensitiveWords) {
-        if (!CollectionUtils.isEmpty(sensitiveWords)) {
-            if (dfaStates == null) {
-                dfaStates = new AVLTree<>(new DFANodeFactory());
+    /**
+     * 添加一个敏感词并发布新的过滤器,只构建增量敏感词的自动机,基础自动机直接共享;
+     * 增量修改累计较多时会在后台合并重建
+     *
+     * @param word 敏感词
+     * @return 新发布的过滤器
+     */
+    public static DFASensitiveWordFilter addWord(String word) {
+        return update(filter -> filter.withWord(word));
+    }
+
+    /**
+     * 删除一个敏感词并发布新的过滤器,基础自动机中的敏感词只标记其结束状态,不修改自动机
+     *
+     * @param word 敏感词
+     * @return 新发布的过滤器
+     */
+    public static DFASensitiveWordFilter removeWord(String word) {
+        return update(filter -> filter.withoutWord(word));
+    }
+
+    private static DFASensitiveWordFilter update(UnaryOperator<DFASensitiveWordFilter> operator) {
+        getInstance();
+        DFASensitiveWordFilter filter = instance.updateAndGet(operator);
+        if (filter.removedStates.length + filter.addedWords.size() > COMPACT_THRESHOLD) {
+            reload();
+        }
+        return filter;
+    }
+
+    private DFASensitiveWordFilter withWord(String word) {
+        if (word == null || word.isEmpty() || addedWords.contains(word)) {
+            return this;
+        }
+        int state = find(word);
+        if (state >= 0) {
+            int index = Arrays.binarySearch(removedStates, state);
+            if (index < 0) {
+                return this;
             }
+            int[] removed = new int[removedStates.length - 1];
+            System.arraycopy(removedStates, 0, removed, 0, index);
+            System.arraycopy(removedStates, index + 1, removed, index, removed.length - index);
+            return new DFASensitiveWordFilter(this, removed, addedWords);
+        }
+        List<String> added = Lists.newArrayList(addedWords);
+        added.add(word);
+        return new DFASensitiveWordFilter(this, removedStates, added);
+    }
+
+    private DFASensitiveWordFilter withoutWord(String word) {
+        if (word == null || word.isEmpty()) {
+            return this;
+        }
+        if (addedWords.contains(word)) {
+            List<String> added = Lists.newArrayList(addedWords);
+            added.remove(word);
+            return new DFASensitiveWordFilter(this, removedStates, added);
+        }
+        int state = find(word);
+        if (state < 0 || Arrays.binarySearch(removedStates, state) >= 0) {
+            return this;
+        }
+        int index = -Arrays.binarySearch(removedStates, state) - 1;
+        int[] removed = new int[removedStates.length + 1];
+        System.arraycopy(removedStates, 0, removed, 0, index);
+        removed[index] = state;
+        System.arraycopy(removedStates, index, removed, index + 1, removedStates.length - index);
+        return new DFASensitiveWordFilter(this, removed, addedWords);
+    }
+
+    /**
+     * 在当前过滤器上叠加一层敏感词,基础自动机直接共享,只为叠加的敏感词(及已有的增量敏感词)构建一个小自动机,
+     * 扫描时两个自动机在一次遍历中同时匹配;当前过滤器不受影响
+     *
+     * @param words 叠加的敏感词,已生效的敏感词忽略
+     * @return
+     */
+    public DFASensitiveWordFilter withWords(Collection<String> words) {
+        DFASensitiveWordFilter filter = this;
+        List<String> added = Lists.newArrayList(addedWords);
+        for (String word : words) {
+            if (word == null || word.isEmpty() || added.contains(word)) {
+                continue;
+            }
+            if (find(word) >= 0) {
+                //基础自动机中被删除的敏感词直接恢复
+                filter = filter.withWord(word);
+            } else {
+                added.add(word);
+            }
+        }
+        return added.size() == addedWords.size() ? filter : new DFASensitiveWordFilter(filter, filter.removedStates, added);
+    }
 
-            for (String word : sensitiveWords) {
-                DFANode state = null;
-                BinarySortTree<Character> states = dfaStates;
-                for (Character c : word.toCharArray()) {
-                    states.insert(c);
-                    state = (DFANode) states.search(c);
-                    states = state.getNextStates();
+    /**
+     * 返回删除给定敏感词后的过滤器,基础自动机中的敏感词只标记其结束状态;当前过滤器不受影响
+     *
+     * @param words 删除的敏感词
+     * @return
+     */
+    public DFASensitiveWordFilter withoutWords(Collection<String> words) {
+        DFASensitiveWordFilter filter = this;
+        for (String word : words) {
+            filter = filter.withoutWord(word);
+        }
+        return filter;
+    }
+
+    /**
+     * 将source到target之间的增量修改重新应用到当前过滤器上,用于后台重建期间发生增量修改的情况
+     *
+     * @param source 重建时使用的过滤器
+     * @param target 最新发布的过滤器
+     */
+    private DFASensitiveWordFilter replay(DFASensitiveWordFilter source, DFASensitiveWordFilter target) {
+        DFASensitiveWordFilter filter = this;
+        for (String word : source.addedWords) {
+            if (!target.addedWords.contains(word)) {
+                filter = filter.withoutWord(word);
+            }
+        }
+        for (String word : target.addedWords) {
+            filter = filter.withWord(word);
+        }
+        for (String word : target.removedWords()) {
+            filter = filter.withoutWord(word);
+        }
+        for (String word : source.removedWords()) {
+            if (!target.isRemoved(word)) {
+                filter = filter.withWord(word);
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * 返回过滤器当前生效的敏感词
+     *
+     * @return
+     */
+    public List<String> getWords() {
+        List<String> words = Lists.newArrayList();
+        for (String word : baseWords) {
+            if (word != null && !word.isEmpty() && !isRemoved(word)) {
+                words.add(word);
+            }
+        }
+        words.addAll(addedWords);
+        return words;
+    }
+
+    private List<String> removedWords() {
+        List<String> words = Lists.newArrayList();
+        if (removedStates.length > 0) {
+            for (String word : baseWords) {
+                if (isRemoved(word)) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    private boolean isRemoved(String word) {
+        if (word == null || removedStates.length == 0) {
+            return false;
+        }
+        int state = find(word);
+        return state >= 0 && Arrays.binarySearch(removedStates, state) >= 0;
+    }
+
+    /**
+     * 扫描字符数组的[from, to)区间,每找到一个敏感词回调一次listener;
+     * 文本中每个字符只做一次状态转移,扫描过程中不产生任何对象分配
+     *
+     * @param chars    进行扫描的字符数组
+     * @param from     开始位置(包含)
+     * @param to       结束位置(不包含)
+     * @param listener 敏感词回调,返回false时停止扫描
+     */
+    public void scan(char[] chars, int from, int to, MatchListener listener) {
+        if (from < 0 || to > chars.length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + chars.length);
+        }
+        Matcher matcher = new Matcher();
+        long start = metrics == null ? 0 : System.nanoTime();
+        int i = from;
+        while (i < to) {
+            i = matcher.skip(chars, i, to);
+            if (i == to) {
+                break;
+            }
+            int length = matcher.next(chars[i++]);
+            if (length > 0) {
+                if (metrics != null) {
+                    metrics.recordHit(getWord(matcher.wordId));
+                }
+                if (!listener.onMatch(i - length, i, matcher.wordId)) {
+                    break;
                 }
-                state.setIntactWord(true);
             }
         }
+        if (metrics != null) {
+            metrics.recordScan(i - from, System.nanoTime() - start);
+        }
+    }
+
+    private void scan(char[] chars, MatchListener listener) {
+        scan(chars, 0, chars.length, listener);
+    }
+
+    /**
+     * 返回敏感词编号对应的敏感词,模式匹配时返回模式原文
+     *
+     * @param wordId 扫描时回调的敏感词编号
+     * @return
+     */
+    public String getWord(int wordId) {
+        if (wordId < baseWords.size()) {
+            return baseWords.get(wordId);
+        }
+        wordId -= baseWords.size();
+        return wordId < addedWords.size() ? addedWords.get(wordId) : patterns.getPattern(wordId - addedWords.size());
     }
 
+    /**
+     * 返回过滤器使用的敏感词模式
+     *
+     * @return
+     */
+    public List<String> getPatterns() {
+        return patterns == null ? Collections.emptyList() : patterns.getPatterns();
+    }
+
+    /**
+     * 返回自动机的状态数(包含增量敏感词的自动机)
+     *
+     * @return
+     */
+    public int stateCount() {
+        int count = minimizedDfa != null ? minimizedDfa.stateCount() : dfa.stateCount();
+        return overlay == null ? count : count + overlay.stateCount();
+    }
+
+    /**
+     * 返回过滤器常驻内存的估算值(字节),包含自动机、首字符位图和增量修改
+     *
+     * @return
+     */
+    public long estimatedBytes() {
+        long bytes = (minimizedDfa != null ? minimizedDfa.estimatedBytes() : dfa.estimatedBytes()) + 8L * baseStartChars.length + 4L * removedStates.length;
+        if (rawBaseStartChars != baseStartChars) {
+            bytes += 8L * rawBaseStartChars.length;
+        }
+        if (startChars != rawBaseStartChars) {
+            bytes += 8L * startChars.length;
+        }
+        return overlay == null ? bytes : bytes + overlay.estimatedBytes();
+    }
+
+    /**
+     * 返回直接在UTF-8字节上匹配的过滤器,第一次调用时构建,敏感词编号与当前过滤器一致,结果与解码后匹配相同
+     *
+     * @return
+     * @throws IllegalStateException 配置了归一化规则或敏感词模式,字节匹配无法得到相同的结果
+     */
+    public Utf8SensitiveWordFilter utf8() {
+        if (charNormalizer != null || patterns != null) {
+            throw new IllegalStateException("utf8 matching does not support normalizer or patterns");
+        }
+        Utf8SensitiveWordFilter result = utf8Filter;
+        if (result == null) {
+            List<String> words = Lists.newArrayList(baseWords);
+            for (int i = 0; i < words.size(); i++) {
+                if (isRemoved(words.get(i))) {
+                    words.set(i, null);
+                }
+            }
+            words.addAll(addedWords);
+            result = new Utf8SensitiveWordFilter(this, words);
+            utf8Filter = result;
+        }
+        return result;
+    }
+
+    /**
+     * 是否配置了跳过字符,此时一个敏感词在原始文本中的跨度没有上限
+     *
+     * @return
+     */
+    boolean hasSkipChars() {
+        return charNormalizer != null && charNormalizer.isSkipEnabled();
+    }
+
+    /**
+     * 并行检查多个文本中是否存在敏感词,使用ForkJoinPool.commonPool()
+     *
+     * @param texts
+     * @return 与输入顺序一致的检查结果
+     */
+    public boolean[] existSensitiveWords(List<String> texts) {
+        return existSensitiveWords(texts, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 使用给定的线程池并行检查多个文本中是否存在敏感词,超长文本会分段并行扫描
+     *
+     * @param texts
+     * @param executor
+     * @return 与输入顺序一致的检查结果
+     */
+    public boolean[] existSensitiveWords(List<String> texts, Executor executor) {
+        return new SensitiveWordBatch(this, executor).exist(toCharArrays(texts));
+    }
+
+    /**
+     * 并行删除多个文本中的敏感词,使用ForkJoinPool.commonPool()
+     *
+     * @param texts
+     * @return 与输入顺序一致的处理结果
+     */
+    public List<String> deleteSensitiveWords(List<String> texts) {
+        return deleteSensitiveWords(texts, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 使用给定的线程池并行删除多个文本中的敏感词,超长文本会分段并行扫描
+     *
+     * @param texts
+     * @param executor
+     * @return 与输入顺序一致的处理结果
+     */
+    public List<String> deleteSensitiveWords(List<String> texts, Executor executor) {
+        return toStrings(new SensitiveWordBatch(this, executor).delete(toCharArrays(texts)));
+    }
+
+    /**
+     * 并行使用给定的字符替换多个文本中的敏感词,使用ForkJoinPool.commonPool()
+     *
+     * @param texts
+     * @param shieldChar 替换后的字符
+     * @return 与输入顺序一致的处理结果
+     */
+    public List<String> shieldSensitiveWords(List<String> texts, char shieldChar) {
+        return shieldSensitiveWords(texts, shieldChar, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 使用给定的线程池并行替换多个文本中的敏感词,超长文本会分段并行扫描
+     *
+     * @param texts
+     * @param shieldChar 替换后的字符
+     * @param executor
+     * @return 与输入顺序一致的处理结果
+     */
+    public List<String> shieldSensitiveWords(List<String> texts, char shieldChar, Executor executor) {
+        return toStrings(shieldSensitiveWords(toCharArrays(texts), shieldChar, executor));
+    }
+
+    /**
+     * 使用给定的线程池并行替换多个字符数组中的敏感词,超长文本会分段并行扫描
+     *
+     * @param texts
+     * @param shieldChar 替换后的字符
+     * @param executor
+     * @return 与输入顺序一致的处理结果
+     */
+    public char[][] shieldSensitiveWords(char[][] texts, char shieldChar, Executor executor) {
+        return new SensitiveWordBatch(this, executor).shield(texts, shieldChar);
+    }
+
+    private static char[][] toCharArrays(List<String> texts) {
+        char[][] chars = new char[texts.size()][];
+        int i = 0;
+        for (String text : texts) {
+            chars[i++] = text.toCharArray();
+        }
+        return chars;
+    }
+
+    private static List<String> toStrings(char[][] chars) {
+        List<String> texts = Lists.newArrayListWithCapacity(chars.length);
+        for (char[] text : chars) {
+            texts.add(new String(text));
+        }
+        return texts;
+    }
+
+    /**
+     * 返回最长敏感词长度(包含增量添加的敏感词)
+     *
+     * @return
+     */
+    int maxWordLength() {
+        int maxDepth = minimizedDfa != null ? minimizedDfa.maxDepth() : dfa.maxDepth();
+        if (patterns != null) {
+            maxDepth = Math.max(maxDepth, patterns.maxLength());
+        }
+        return overlay == null ? maxDepth : Math.max(maxDepth, overlay.maxDepth());
+    }
+
+    /**
+     * 跳过已删除的敏感词,沿失败链找到以该状态结尾的最长的未删除敏感词的结束状态
+     */
+    private int liveOutput(int state) {
+        int output = dfa.output(state);
+        while (output != CompiledDFA.ROOT && Arrays.binarySearch(removedStates, output) >= 0) {
+            output = dfa.output(dfa.failure(output));
+        }
+        return output;
+    }
 
     /**
      * 检查给定的字符串是否存在敏感词
@@ -131,28 +870,12 @@ public class DFASensitiveWordFilter {
      * @return
      */
     public boolean existSensitiveWord(char[] chars) {
-        BinarySortTree<Character> states = dfaStates;
-        CharSource charSource = new CharSource(chars);
-        //标识匹配状态位置
-        int position = 0;
-        do {
-            Character character = charSource.next();
-            DFANode node = (DFANode) states.search(character);
-            if (node != null) {
-                states = node.getNextStates();
-                if (node.isIntactWord()) {
-                    return true;
-                }
-                position++;
-            } else {
-                if (position > 0) {
-                    charSource.back();
-                }
-                states = dfaStates;
-                position = 0;
-            }
-        } while (!charSource.isEnd());
-        return false;
+        boolean[] exist = new boolean[1];
+        scan(chars, (start, end, wordId) -> {
+            exist[0] = true;
+            return false;
+        });
+        return exist[0];
     }
 
     public String deleteSensitiveWord(String text) throws IOException {
@@ -161,50 +884,20 @@ public class DFASensitiveWordFilter {
     }
 
     public char[] deleteSensitiveWord(char[] chars) throws IOException {
+        return delete(chars);
+    }
 
-        CharSource charSource = new CharSource(chars);
-        BinarySortTree<Character> states = dfaStates;
+    char[] delete(char[] chars) {
         CharArrayWriter charWriter = new CharArrayWriter(chars.length);
-        CharArrayWriter cacheWriter = new CharArrayWriter(chars.length);
-        int position = 0;
-
-        do {
-            Character character = charSource.next();
-            DFANode node = (DFANode) states.search(character);
-            if (node != null) {
-                cacheWriter.append(character);
-                if (node.isIntactWord()) {
-                    cacheWriter.reset();
-                    position = 0;
-                    states = dfaStates;
-                } else {
-                    position++;
-                    states = node.getNextStates();
-                }
-            } else {
-                if (cacheWriter.size() > 0) {
-                    cacheWriter.writeTo(charWriter);
-                    cacheWriter.reset();
-                }
-
-                if (position > 0) {
-                    charSource.back();
-                } else {
-                    charWriter.write(character);
-                }
-                //初始化匹配状态开始位置
-                position = 0;
-                //初始化为开始状态集合
-                states = dfaStates;
-            }
-
-            if (charSource.isEnd()) {
-                if (cacheWriter.size() > 0) {
-                    cacheWriter.writeTo(charWriter);
-                }
-                return charWriter.toCharArray();
-            }
-        } while (true);
+        //上一个敏感词结束位置
+        int[] position = new int[1];
+        scan(chars, (start, end, wordId) -> {
+            charWriter.write(chars, position[0], start - position[0]);
+            position[0] = end;
+            return true;
+        });
+        charWriter.write(chars, position[0], chars.length - position[0]);
+        return charWriter.toCharArray();
     }
 
     /**
@@ -226,53 +919,111 @@ public class DFASensitiveWordFilter {
      * @return 返回经过处理的字符数组
      */
     public char[] shieldSensitiveWord(char[] chars, char shieldChar) throws IOException {
+        return shield(chars, shieldChar);
+    }
 
-        CharSource charSource = new CharSource(chars);
-        BinarySortTree<Character> states = dfaStates;
-        CharArrayWriter charWriter = new CharArrayWriter(chars.length);
-        CharArrayWriter cacheWriter = new CharArrayWriter(chars.length);
-        int position = 0;
+    char[] shield(char[] chars, char shieldChar) {
+        char[] newChars = Arrays.copyOf(chars, chars.length);
+        shieldInPlace(newChars, 0, newChars.length, shieldChar);
+        return newChars;
+    }
 
-        do {
-            Character character = charSource.next();
-            DFANode node = (DFANode) states.search(character);
-            if (node != null) {
-                cacheWriter.append(character);
-                if (node.isIntactWord()) {
-                    char[] temp = new char[cacheWriter.size()];
-                    Arrays.fill(temp, shieldChar);
-                    cacheWriter.reset();
-                    charWriter.write(temp);
-                    position = 0;
-                    states = dfaStates;
-                } else {
-                    position++;
-                    states = node.getNextStates();
-                }
-            } else {
-                if (cacheWriter.size() > 0) {
-                    cacheWriter.writeTo(charWriter);
-                    cacheWriter.reset();
-                }
+    /**
+     * 使用给定的字符直接替换字符数组中的敏感词,不复制文本;替换不改变文本长度,
+     * 被替换的字符都在扫描位置之前,不影响之后的匹配
+     *
+     * @param chars      进行敏感词替换的字符数组,处理后的结果直接写回
+     * @param shieldChar 替换后的字符
+     * @return 替换的敏感词个数
+     */
+    public int shieldSensitiveWordInPlace(char[] chars, char shieldChar) {
+        return shieldInPlace(chars, 0, chars.length, shieldChar);
+    }
 
-                if (position > 0) {
-                    charSource.back();
-                } else {
-                    charWriter.write(character);
+    /**
+     * 使用给定的字符直接替换字符数组[from, to)区间中的敏感词,不复制文本
+     *
+     * @param chars      进行敏感词替换的字符数组,处理后的结果直接写回
+     * @param from       开始位置(包含)
+     * @param to         结束位置(不包含)
+     * @param shieldChar 替换后的字符
+     * @return 替换的敏感词个数
+     */
+    public int shieldSensitiveWordInPlace(char[] chars, int from, int to, char shieldChar) {
+        if (from < 0 || to > chars.length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + chars.length);
+        }
+        return shieldInPlace(chars, from, to, shieldChar);
+    }
+
+    /**
+     * 使用给定的字符直接替换字符缓冲区position到limit之间的敏感词,不修改position和limit;
+     * 有底层数组的缓冲区直接在数组上替换
+     *
+     * @param buffer     进行敏感词替换的字符缓冲区
+     * @param shieldChar 替换后的字符
+     * @return 替换的敏感词个数
+     * @throws ReadOnlyBufferException 缓冲区只读
+     */
+    public int shieldSensitiveWordInPlace(CharBuffer buffer, char shieldChar) {
+        if (buffer.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            return shieldInPlace(buffer.array(), offset + buffer.position(), offset + buffer.limit(), shieldChar);
+        }
+        Matcher matcher = new Matcher();
+        long start = metrics == null ? 0 : System.nanoTime();
+        int count = 0;
+        int limit = buffer.limit();
+        int i = buffer.position();
+        while (i < limit) {
+            i = matcher.skip(buffer, i, limit);
+            if (i == limit) {
+                break;
+            }
+            int length = matcher.next(buffer.get(i));
+            if (length > 0) {
+                if (metrics != null) {
+                    metrics.recordHit(getWord(matcher.wordId));
+                }
+                for (int j = i + 1 - length; j <= i; j++) {
+                    buffer.put(j, shieldChar);
                 }
-                //初始化匹配状态开始位置
-                position = 0;
-                //初始化为开始状态集合
-                states = dfaStates;
+                count++;
             }
+            i++;
+        }
+        if (metrics != null) {
+            metrics.recordScan(buffer.remaining(), System.nanoTime() - start);
+        }
+        return count;
+    }
 
-            if (charSource.isEnd()) {
-                if (cacheWriter.size() > 0) {
-                    cacheWriter.writeTo(charWriter);
+    private int shieldInPlace(char[] chars, int from, int to, char shieldChar) {
+        Matcher matcher = new Matcher();
+        long start = metrics == null ? 0 : System.nanoTime();
+        int count = 0;
+        int i = from;
+        while (i < to) {
+            i = matcher.skip(chars, i, to);
+            if (i == to) {
+                break;
+            }
+            int length = matcher.next(chars[i++]);
+            if (length > 0) {
+                if (metrics != null) {
+                    metrics.recordHit(getWord(matcher.wordId));
                 }
-                return charWriter.toCharArray();
+                Arrays.fill(chars, i - length, i, shieldChar);
+                count++;
             }
-        } while (true);
+        }
+        if (metrics != null) {
+            metrics.recordScan(to - from, System.nanoTime() - start);
+        }
+        return count;
     }
 
     /**
@@ -282,72 +1033,342 @@ public class DFASensitiveWordFilter {
      * @return 如果没有敏感词返回空List否则返回包含敏感词的List
      */
     public List<String> findSensitiveWords(String text) throws IOException {
-
         char[] chars = text.toCharArray();
-        CharSource charSource = new CharSource(chars);
-        BinarySortTree<Character> states = dfaStates;
-        CharArrayWriter cacheWriter = new CharArrayWriter(chars.length);
-        int position = 0;
         List<String> words = Lists.newLinkedList();
+        scan(chars, (start, end, wordId) -> {
+            words.add(getWord(wordId));
+            return true;
+        });
+        return words;
+    }
 
-        do {
-            Character character = charSource.next();
-            DFANode node = (DFANode) states.search(character);
-            if (node != null) {
-                cacheWriter.append(character);
-                if (node.isIntactWord()) {
-                    words.add(new String(cacheWriter.toCharArray()));
-                    cacheWriter.reset();
-                    position = 0;
-                    states = dfaStates;
-                } else {
-                    position++;
-                    states = node.getNextStates();
-                }
-            } else {
-                if (position > 0) {
-                    cacheWriter.reset();
-                    charSource.back();
-                    position = 0;
-                    states = dfaStates;
+    /**
+     * 检查字符流中是否存在敏感词,找到第一个敏感词后停止读取
+     *
+     * @param reader 字符流,由调用方负责关闭
+     * @return
+     * @throws IOException
+     */
+    public boolean existSensitiveWord(Reader reader) throws IOException {
+        Matcher matcher = new Matcher();
+        long start = metrics == null ? 0 : System.nanoTime();
+        char[] buffer = new char[STREAM_BUFFER_SIZE];
+        long count = 0;
+        int size;
+        try {
+            while ((size = reader.read(buffer)) >= 0) {
+                for (int i = 0; i < size; i++) {
+                    i = matcher.skip(buffer, i, size);
+                    if (i < size && matcher.next(buffer[i]) > 0) {
+                        if (metrics != null) {
+                            count += i + 1;
+                            metrics.recordHit(getWord(matcher.wordId));
+                        }
+                        return true;
+                    }
                 }
+                count += size;
+            }
+            return false;
+        } finally {
+            if (metrics != null) {
+                metrics.recordScan(count, System.nanoTime() - start);
             }
+        }
+    }
+
+    /**
+     * 检查字节通道中是否存在敏感词
+     *
+     * @param channel 字节通道,由调用方负责关闭
+     * @param charset 字节通道内容的编码
+     * @return
+     * @throws IOException
+     */
+    public boolean existSensitiveWord(ReadableByteChannel channel, Charset charset) throws IOException {
+        return existSensitiveWord(Channels.newReader(channel, charset.newDecoder(), -1));
+    }
+
+    /**
+     * 删除字符流中的敏感词并写出到writer,跨越读取边界的敏感词同样会被删除
+     *
+     * @param reader 字符流,由调用方负责关闭
+     * @param writer 输出流,由调用方负责关闭
+     * @throws IOException
+     */
+    public void deleteSensitiveWord(Reader reader, Writer writer) throws IOException {
+        filter(reader, writer, true, ' ');
+    }
 
-            if (charSource.isEnd()) {
-                return words;
+    /**
+     * 删除字节通道中的敏感词并按相同编码写出到输出通道
+     *
+     * @param in      输入通道,由调用方负责关闭
+     * @param out     输出通道,由调用方负责关闭
+     * @param charset 通道内容的编码
+     * @throws IOException
+     */
+    public void deleteSensitiveWord(ReadableByteChannel in, WritableByteChannel out, Charset charset) throws IOException {
+        Writer writer = Channels.newWriter(out, charset.newEncoder(), -1);
+        deleteSensitiveWord(Channels.newReader(in, charset.newDecoder(), -1), writer);
+        writer.flush();
+    }
+
+    /**
+     * 使用给定的字符替换字符流中的敏感词并写出到writer,跨越读取边界的敏感词同样会被替换
+     *
+     * @param reader     字符流,由调用方负责关闭
+     * @param writer     输出流,由调用方负责关闭
+     * @param shieldChar 替换后的字符
+     * @throws IOException
+     */
+    public void shieldSensitiveWord(Reader reader, Writer writer, char shieldChar) throws IOException {
+        filter(reader, writer, false, shieldChar);
+    }
+
+    /**
+     * 使用给定的字符替换字节通道中的敏感词并按相同编码写出到输出通道
+     *
+     * @param in         输入通道,由调用方负责关闭
+     * @param out        输出通道,由调用方负责关闭
+     * @param charset    通道内容的编码
+     * @param shieldChar 替换后的字符
+     * @throws IOException
+     */
+    public void shieldSensitiveWord(ReadableByteChannel in, WritableByteChannel out, Charset charset, char shieldChar)
+            throws IOException {
+        Writer writer = Channels.newWriter(out, charset.newEncoder(), -1);
+        shieldSensitiveWord(Channels.newReader(in, charset.newDecoder(), -1), writer, shieldChar);
+        writer.flush();
+    }
+
+    /**
+     * 分块读取字符流进行敏感词处理;之后结束的敏感词只可能从最近的(最长敏感词长度-1)个有效字符开始,
+     * 因此每次只需保留缓冲区末尾这部分字符,其余字符可以直接写出,占用内存与文本长度无关
+     * (配置了跳过字符时还需保留夹在其中的跳过字符,连续跳过字符数超过上限时丢弃已匹配的前缀,保留的字符数仍有上限)
+     *
+     * @param delete     true删除敏感词,false使用shieldChar替换敏感词
+     * @param shieldChar 替换后的字符
+     */
+    private void filter(Reader reader, Writer writer, boolean delete, char shieldChar) throws IOException {
+        Matcher matcher = new Matcher();
+        long start = metrics == null ? 0 : System.nanoTime();
+        long count = 0;
+        char[] buffer = new char[STREAM_BUFFER_SIZE + maxWordLength()];
+        //buffer[0, size)为上次读取后保留下来未写出的字符
+        int size = 0;
+        int read;
+        while ((read = reader.read(buffer, size, STREAM_BUFFER_SIZE)) >= 0) {
+            count += read;
+            //已写出或已删除字符的结束位置
+            int written = 0;
+            for (int i = size; i < size + read; i++) {
+                i = matcher.skip(buffer, i, size + read);
+                if (i == size + read) {
+                    break;
+                }
+                int length = matcher.next(buffer[i]);
+                if (length > 0) {
+                    if (metrics != null) {
+                        metrics.recordHit(getWord(matcher.wordId));
+                    }
+                    if (delete) {
+                        writer.write(buffer, written, i + 1 - length - written);
+                        written = i + 1;
+                    } else {
+                        Arrays.fill(buffer, i + 1 - length, i + 1, shieldChar);
+                    }
+                }
             }
-        } while (true);
+            size += read;
+            //保留末尾可能成为后续敏感词一部分的字符,其余字符写出
+            int flush = Math.max(written, size - matcher.pending());
+            writer.write(buffer, written, flush - written);
+            System.arraycopy(buffer, flush, buffer, 0, size - flush);
+            size -= flush;
+            if (buffer.length - size < STREAM_BUFFER_SIZE) {
+                buffer = Arrays.copyOf(buffer, size + STREAM_BUFFER_SIZE);
+            }
+        }
+        writer.write(buffer, 0, size);
+        if (metrics != null) {
+            metrics.recordScan(count, System.nanoTime() - start);
+        }
     }
 
     /**
-     * 对需要进行敏感词处理的char数组进行封装,提供便利的操作方法
+     * 保存一次扫描的匹配状态,基础自动机和增量自动机在同一遍扫描中同时转移;
+     * 配置了归一化规则时先对字符归一化,跳过字符不进行状态转移,返回的敏感词长度按原始文本计算
      */
-    static class CharSource {
-        private char[] chars;
-        private int position;
+    private final class Matcher {
+        private final int maxLength = maxWordLength();
+        private int state = CompiledDFA.ROOT;
+        private int overlayState = CompiledDFA.ROOT;
+        /* 使用最小化自动机时的匹配状态,否则为null*/
+        private final MinimizedDFA.Cursor cursor = minimizedDfa == null ? null : minimizedDfa.new Cursor();
+        /* 敏感词模式的匹配状态,没有模式时为null*/
+        private final SensitivePatterns.Cursor patternCursor = patterns == null ? null : patterns.new Cursor();
+        /* 最近一次找到的敏感词编号*/
+        private int wordId = -1;
+        /* 已输入的原始字符数*/
+        private int offset;
+        /* 已进行状态转移的字符数*/
+        private int consumed;
+        /* 最近一次找到敏感词时已进行状态转移的字符数*/
+        private int matched;
+        /* 配置了跳过字符时记录最近进行状态转移的字符在原始文本中的位置,环形使用*/
+        private final int[] positions;
+        /* 允许的最长连续跳过字符数*/
+        private final int maxSkipRun;
+        /* 当前连续跳过的字符数*/
+        private int skipRun;
+
+        Matcher() {
+            positions = charNormalizer != null && charNormalizer.isSkipEnabled()
+                    ? new int[Integer.highestOneBit(Math.max(maxLength, 1)) << 1] : null;
+            maxSkipRun = positions == null ? 0 : charNormalizer.getMaxSkipRun();
+        }
 
-        public CharSource(char[] chars) {
-            if (chars == null || chars.length == 0) {
-                throw new IllegalArgumentException("chars array must not be empty");
+        /**
+         * 输入一个字符进行状态转移,找到敏感词后回到开始状态
+         *
+         * @param c
+         * @return 以该字符结束的敏感词在原始文本中的长度,没有时返回0
+         */
+        int next(char c) {
+            char raw = c;
+            if (charNormalizer != null) {
+                c = charNormalizer.normalize(c);
+                if (positions != null && charNormalizer.isSkipChar(c)) {
+                    offset++;
+                    if (++skipRun == maxSkipRun + 1) {
+                        //跳过字符过多,已匹配的前缀不再与之后的字符组成敏感词
+                        restart();
+                    }
+                    return 0;
+                }
+                if (positions != null) {
+                    positions[consumed & (positions.length - 1)] = offset;
+                    skipRun = 0;
+                }
+            }
+            offset++;
+            consumed++;
+            int length;
+            if (cursor != null) {
+                length = cursor.next(c, removedStates);
+                if (length > 0) {
+                    wordId = cursor.wordId();
+                }
+            } else {
+                state = dfa.next(state, c);
+                length = dfa.matchLength(state);
+                if (length > 0) {
+                    int output = removedStates.length == 0 ? dfa.output(state) : liveOutput(state);
+                    length = dfa.matchLength(output);
+                    wordId = dfa.wordId(output);
+                }
+            }
+            if (overlay != null) {
+                overlayState = overlay.next(overlayState, c);
+                int overlayLength = overlay.matchLength(overlayState);
+                if (overlayLength > length) {
+                    length = overlayLength;
+                    wordId = baseWords.size() + overlay.wordId(overlay.output(overlayState));
+                }
+            }
+            if (patternCursor != null) {
+                int patternLength = patternCursor.next(raw, c);
+                if (patternLength > length) {
+                    length = patternLength;
+                    wordId = baseWords.size() + addedWords.size() + patternCursor.patternId();
+                }
             }
-            this.chars = chars;
-            this.position = 0;
+            if (length > 0) {
+                //匹配成功后从开始状态重新匹配
+                restart();
+                if (positions != null) {
+                    length = offset - positions[(consumed - length) & (positions.length - 1)];
+                }
+            }
+            return length;
         }
 
-        public char next() {
-            return position < chars.length ? chars[position++] : chars[chars.length - 1];
+        /**
+         * 回到开始状态,之前的字符不再作为之后敏感词的一部分
+         */
+        private void restart() {
+            state = CompiledDFA.ROOT;
+            overlayState = CompiledDFA.ROOT;
+            if (cursor != null) {
+                cursor.reset();
+            }
+            if (patternCursor != null) {
+                patternCursor.reset();
+            }
+            matched = consumed;
         }
 
-        public boolean isEnd() {
-            return position >= chars.length;
+        /**
+         * 处于开始状态时跳过不可能作为敏感词首字符的字符,这些字符不会改变匹配状态,
+         * 干净文本的扫描只需逐个检查位图而不进行状态转移
+         *
+         * @return 第一个需要进行状态转移的字符位置,都可跳过时返回to
+         */
+        int skip(char[] chars, int from, int to) {
+            if (!atRoot()) {
+                return from;
+            }
+            long[] bitmap = startChars;
+            int i = from;
+            while (i < to && (bitmap[chars[i] >>> 6] & (1L << chars[i])) == 0) {
+                i++;
+            }
+            skipped(i - from);
+            return i;
         }
 
-        public void back() {
-            if (position > 0) {
-                position--;
+        /**
+         * 与{@link #skip(char[], int, int)}相同,用于没有底层数组的缓冲区,按绝对位置读取不修改position
+         */
+        int skip(CharBuffer buffer, int from, int to) {
+            if (!atRoot()) {
+                return from;
+            }
+            long[] bitmap = startChars;
+            int i = from;
+            char c;
+            while (i < to && (bitmap[(c = buffer.get(i)) >>> 6] & (1L << c)) == 0) {
+                i++;
             }
+            skipped(i - from);
+            return i;
         }
 
+        private boolean atRoot() {
+            return state == CompiledDFA.ROOT && overlayState == CompiledDFA.ROOT && (cursor == null || cursor.isIdle())
+                    && (patternCursor == null || patternCursor.isIdle());
+        }
+
+        private void skipped(int count) {
+            //处于开始状态说明末尾没有可能成为敏感词前缀的字符
+            offset += count;
+            consumed += count;
+            matched = consumed;
+        }
+
+        /**
+         * 返回末尾可能成为之后敏感词一部分的原始字符数
+         *
+         * @return
+         */
+        int pending() {
+            int symbols = Math.min(maxLength - 1, consumed - matched);
+            if (symbols <= 0 || positions == null) {
+                return Math.max(symbols, 0);
+            }
+            return offset - positions[(consumed - symbols) & (positions.length - 1)];
+        }
     }
 
 }
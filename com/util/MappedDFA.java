@@ -0,0 +1,291 @@
+package com.util;
+
+import com.google.common.collect.Lists;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 直接在内存映射的镜像文件上运行的敏感词自动机,镜像文件由{@link #write(CompiledDFA, List, Path)}离线生成<br>
+ * 加载时只做映射和校验,状态转移直接读取映射的页面,同一台机器上的多个JVM共享操作系统的页缓存<br>
+ * 镜像文件格式(小端字节序):
+ * <pre>
+ * 文件头: magic, version, stateCount, transitionCount, maxDepth, wordCount, reserved(int*2), checksum(long)
+ * 数据区: childStart[stateCount+1], failures[stateCount], matchLengths[stateCount], outputs[stateCount],
+ *        wordIds[stateCount], childChars[transitionCount](按4字节补齐), 敏感词(每个敏感词为长度+UTF-16字符,null的长度为-1)
+ * </pre>
+ * checksum为除checksum字段外整个文件的CRC32
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public final class MappedDFA implements WordDFA {
+
+    private static final int MAGIC = 0x44464157;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    /* 开始状态的转移超过该数量时在堆内建立按字符直接寻址的转移表*/
+    private static final int DENSE_ROOT_THRESHOLD = 64;
+
+    private final IntBuffer childStart;
+    private final CharBuffer childChars;
+    private final IntBuffer failures;
+    private final IntBuffer matchLengths;
+    private final IntBuffer outputs;
+    private final IntBuffer wordIds;
+    private final int[] rootStates;
+    private final int imageSize;
+    private final int stateCount;
+    private final int maxDepth;
+    private final List<String> words;
+
+    private MappedDFA(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a sensitive word dfa image");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported dfa image version: " + buffer.getInt(4));
+        }
+        imageSize = buffer.capacity();
+        stateCount = buffer.getInt(8);
+        int transitionCount = buffer.getInt(12);
+        maxDepth = buffer.getInt(16);
+        int wordCount = buffer.getInt(20);
+        if (checksum(buffer, buffer.capacity()) != buffer.getLong(HEADER_SIZE - 8)) {
+            throw new IOException("dfa image checksum mismatch");
+        }
+
+        int position = HEADER_SIZE;
+        childStart = slice(buffer, position, (stateCount + 1) * 4).asIntBuffer();
+        position += (stateCount + 1) * 4;
+        failures = slice(buffer, position, stateCount * 4).asIntBuffer();
+        position += stateCount * 4;
+        matchLengths = slice(buffer, position, stateCount * 4).asIntBuffer();
+        position += stateCount * 4;
+        outputs = slice(buffer, position, stateCount * 4).asIntBuffer();
+        position += stateCount * 4;
+        wordIds = slice(buffer, position, stateCount * 4).asIntBuffer();
+        position += stateCount * 4;
+        childChars = slice(buffer, position, transitionCount * 2).asCharBuffer();
+        position += align(transitionCount * 2);
+
+        List<String> words = Lists.newArrayListWithCapacity(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            int length = buffer.getInt(position);
+            position += 4;
+            if (length < 0) {
+                words.add(null);
+            } else {
+                char[] chars = new char[length];
+                slice(buffer, position, length * 2).asCharBuffer().get(chars);
+                words.add(new String(chars));
+                position += length * 2;
+            }
+        }
+        this.words = Collections.unmodifiableList(words);
+
+        int rootChildren = childStart.get(ROOT + 1) - childStart.get(ROOT);
+        if (rootChildren >= DENSE_ROOT_THRESHOLD) {
+            rootStates = new int[Character.MAX_VALUE + 1];
+            for (int i = childStart.get(ROOT); i < childStart.get(ROOT + 1); i++) {
+                rootStates[childChars.get(i)] = i + 1;
+            }
+        } else {
+            rootStates = null;
+        }
+    }
+
+    /**
+     * 映射并校验镜像文件
+     *
+     * @param path 镜像文件
+     * @return
+     * @throws IOException 文件格式、版本或校验和不正确
+     */
+    public static MappedDFA load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedDFA(buffer.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    /**
+     * 将编译后的自动机及敏感词写出为镜像文件,先写临时文件再原子替换,加载中的旧镜像不受影响
+     *
+     * @param dfa   编译后的自动机
+     * @param words 构建自动机使用的敏感词,下标为敏感词编号
+     * @param path  镜像文件
+     * @throws IOException
+     */
+    public static void write(CompiledDFA dfa, List<String> words, Path path) throws IOException {
+        int stateCount = dfa.stateCount();
+        int transitionCount = dfa.childChars().length;
+        int size = HEADER_SIZE + (stateCount + 1) * 4 + stateCount * 4 * 4 + align(transitionCount * 2);
+        for (String word : words) {
+            size += 4 + (word == null ? 0 : word.length() * 2);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(stateCount).putInt(transitionCount)
+                .putInt(dfa.maxDepth()).putInt(words.size()).putInt(0).putInt(0).putLong(0);
+        for (int start : dfa.childStarts()) {
+            buffer.putInt(start);
+        }
+        for (int i = 0; i < stateCount; i++) {
+            buffer.putInt(dfa.failure(i));
+        }
+        for (int i = 0; i < stateCount; i++) {
+            buffer.putInt(dfa.matchLength(i));
+        }
+        for (int i = 0; i < stateCount; i++) {
+            buffer.putInt(dfa.output(i));
+        }
+        for (int i = 0; i < stateCount; i++) {
+            buffer.putInt(dfa.wordId(i));
+        }
+        for (char c : dfa.childChars()) {
+            buffer.putChar(c);
+        }
+        buffer.position(HEADER_SIZE + (stateCount + 1) * 4 + stateCount * 4 * 4 + align(transitionCount * 2));
+        for (String word : words) {
+            if (word == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(word.length());
+                for (int i = 0; i < word.length(); i++) {
+                    buffer.putChar(word.charAt(i));
+                }
+            }
+        }
+        buffer.putLong(HEADER_SIZE - 8, checksum(buffer, size));
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 计算除checksum字段外整个文件的CRC32
+     */
+    private static long checksum(ByteBuffer buffer, int size) {
+        CRC32 crc = new CRC32();
+        crc.update(slice(buffer, 0, HEADER_SIZE - 8));
+        crc.update(slice(buffer, HEADER_SIZE, size - HEADER_SIZE));
+        return crc.getValue();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(position + length);
+        duplicate.position(position);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int align(int length) {
+        return (length + 3) & ~3;
+    }
+
+    /**
+     * 返回镜像文件中保存的敏感词,下标为敏感词编号
+     *
+     * @return
+     */
+    public List<String> words() {
+        return words;
+    }
+
+    @Override
+    public int next(int state, char c) {
+        while (state != ROOT) {
+            int next = child(state, c);
+            if (next != ROOT) {
+                return next;
+            }
+            state = failures.get(state);
+        }
+        return rootStates != null ? rootStates[c] : child(ROOT, c);
+    }
+
+    private int child(int state, char c) {
+        int low = childStart.get(state);
+        int high = childStart.get(state + 1) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char value = childChars.get(middle);
+            if (value < c) {
+                low = middle + 1;
+            } else if (value > c) {
+                high = middle - 1;
+            } else {
+                return middle + 1;
+            }
+        }
+        return ROOT;
+    }
+
+    @Override
+    public int find(CharSequence word) {
+        int state = ROOT;
+        for (int i = 0; i < word.length(); i++) {
+            state = child(state, word.charAt(i));
+            if (state == ROOT) {
+                return -1;
+            }
+        }
+        return state != ROOT && outputs.get(state) == state ? state : -1;
+    }
+
+    @Override
+    public int failure(int state) {
+        return failures.get(state);
+    }
+
+    @Override
+    public int output(int state) {
+        return outputs.get(state);
+    }
+
+    @Override
+    public int wordId(int state) {
+        return wordIds.get(state);
+    }
+
+    @Override
+    public int matchLength(int state) {
+        return matchLengths.get(state);
+    }
+
+    @Override
+    public int stateCount() {
+        return stateCount;
+    }
+
+    @Override
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return rootStates == null ? imageSize : imageSize + 4L * rootStates.length;
+    }
+}
@@ -0,0 +1,19 @@
+package com.util;
+
+/**
+ * 扫描过程中找到敏感词时的回调,只传递基本类型的位置和编号,由调用方决定是否需要生成敏感词字符串
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+@FunctionalInterface
+public interface MatchListener {
+
+    /**
+     * @param start  敏感词在文本中的开始位置(包含)
+     * @param end    敏感词在文本中的结束位置(不包含)
+     * @param wordId 敏感词编号,可以通过{@link DFASensitiveWordFilter#getWord(int)}获取敏感词
+     * @return 是否继续扫描
+     */
+    boolean onMatch(int start, int end, int wordId);
+}
@@ -0,0 +1,37 @@
+package com.util;
+
+/**
+ * 敏感词过滤器的运行指标回调,用于把指标接入外部监控系统;回调在扫描线程上同步执行,实现应尽量轻量
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public interface MetricsListener {
+
+    /**
+     * 完成一次扫描
+     *
+     * @param chars 扫描的字符数
+     * @param nanos 扫描耗时(纳秒)
+     */
+    default void onScan(long chars, long nanos) {
+    }
+
+    /**
+     * 找到一个敏感词
+     *
+     * @param word 敏感词
+     */
+    default void onHit(String word) {
+    }
+
+    /**
+     * 构建了一个过滤器(包含增量修改时的构建)
+     *
+     * @param nanos          构建耗时(纳秒)
+     * @param stateCount     自动机状态数
+     * @param estimatedBytes 自动机占用内存的估算值
+     */
+    default void onBuild(long nanos, int stateCount, long estimatedBytes) {
+    }
+}
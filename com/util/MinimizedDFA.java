@@ -0,0 +1,350 @@
+package com.util;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 最小化的只读敏感词自动机(DAWG),后缀相同的敏感词共享后缀状态,适用于大量敏感词共享后缀的词库<br>
+ * 敏感词按字符顺序排序后逐个插入,插入时将与上一个敏感词不再共用的状态和已有的等价状态(是否结束及所有转移都相同)合并,
+ * 构建结果即为最小自动机;状态及转移按CSR结构保存在基本类型数组中<br>
+ * 合并后的状态不再对应唯一的前缀,因此没有失败指针,也不在状态上保存敏感词编号:
+ * 每个转移保存排在它之前的敏感词数量,沿敏感词经过的转移累加即得到敏感词的字典序序号,再映射为敏感词编号<br>
+ * 扫描时由{@link Cursor}同时跟踪从最近各位置开始的匹配,匹配结果与{@link CompiledDFA}一致;构建完成后不可修改,可在多线程间共享
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public final class MinimizedDFA {
+
+    /* 开始状态的转移超过该数量时使用按字符直接寻址的转移表*/
+    private static final int DENSE_ROOT_THRESHOLD = 64;
+
+    private final int root;
+    private final int[] childStart;
+    private final char[] childChars;
+    private final int[] targets;
+    /* 经过该转移时字典序序号增加的值:转移起点是否为敏感词结尾加上字符较小的转移能到达的敏感词数量*/
+    private final int[] rankOffsets;
+    private final long[] finals;
+    /* 字典序序号对应的敏感词编号*/
+    private final int[] wordIds;
+    /* 开始状态按字符直接寻址的转移表(转移下标+1),开始状态转移较少时为null*/
+    private final int[] rootTransitions;
+    private final int maxDepth;
+
+    private MinimizedDFA(int root, int[] childStart, char[] childChars, int[] targets, int[] rankOffsets, long[] finals,
+                         int[] wordIds, int maxDepth) {
+        this.root = root;
+        this.childStart = childStart;
+        this.childChars = childChars;
+        this.targets = targets;
+        this.rankOffsets = rankOffsets;
+        this.finals = finals;
+        this.wordIds = wordIds;
+        this.maxDepth = maxDepth;
+        if (childStart[root + 1] - childStart[root] >= DENSE_ROOT_THRESHOLD) {
+            rootTransitions = new int[Character.MAX_VALUE + 1];
+            for (int i = childStart[root]; i < childStart[root + 1]; i++) {
+                rootTransitions[childChars[i]] = i + 1;
+            }
+        } else {
+            rootTransitions = null;
+        }
+    }
+
+    /**
+     * 使用给定的敏感词构建最小化自动机,敏感词在列表中的下标即为敏感词编号,重复的敏感词使用第一次出现的编号
+     *
+     * @param words 敏感词,忽略null和空字符串
+     * @return
+     */
+    public static MinimizedDFA build(List<String> words) {
+        List<String> sorted = Lists.newArrayList();
+        Map<String, Integer> ids = new HashMap<>();
+        if (words != null) {
+            for (int i = 0; i < words.size(); i++) {
+                String word = words.get(i);
+                if (word != null && !word.isEmpty() && ids.putIfAbsent(word, i) == null) {
+                    sorted.add(word);
+                }
+            }
+        }
+        sorted.sort(null);
+        int[] wordIds = new int[sorted.size()];
+        for (int i = 0; i < wordIds.length; i++) {
+            wordIds[i] = ids.get(sorted.get(i));
+        }
+        return new Builder().build(sorted, wordIds);
+    }
+
+    /**
+     * 在状态的转移字符中二分查找输入字符
+     *
+     * @return 转移下标,不存在时返回-1
+     */
+    private int transition(int state, char c) {
+        if (state == root && rootTransitions != null) {
+            return rootTransitions[c] - 1;
+        }
+        int low = childStart[state];
+        int high = childStart[state + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char value = childChars[middle];
+            if (value < c) {
+                low = middle + 1;
+            } else if (value > c) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isFinal(int state) {
+        return (finals[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * 查找敏感词的字典序序号,可作为敏感词在自动机中的唯一标识
+     *
+     * @param word
+     * @return 敏感词不存在时返回-1
+     */
+    public int find(CharSequence word) {
+        int state = root;
+        int rank = 0;
+        for (int i = 0; i < word.length(); i++) {
+            int transition = transition(state, word.charAt(i));
+            if (transition < 0) {
+                return -1;
+            }
+            state = targets[transition];
+            rank += rankOffsets[transition];
+        }
+        return word.length() > 0 && isFinal(state) ? rank : -1;
+    }
+
+    /**
+     * 返回字典序序号对应的敏感词编号
+     *
+     * @param rank
+     * @return
+     */
+    public int wordId(int rank) {
+        return wordIds[rank];
+    }
+
+    public int stateCount() {
+        return childStart.length - 1;
+    }
+
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 返回自动机占用内存的估算值(字节)
+     *
+     * @return
+     */
+    public long estimatedBytes() {
+        long bytes = 4L * (childStart.length + targets.length + rankOffsets.length + wordIds.length)
+                + 2L * childChars.length + 8L * finals.length;
+        return rootTransitions == null ? bytes : bytes + 4L * rootTransitions.length;
+    }
+
+    /**
+     * 扫描时的匹配状态,记录从最近各位置开始、还可能匹配到敏感词的所有匹配(按开始位置先后排列),
+     * 同时进行的匹配不超过最长敏感词长度;每个实例只能在一个线程中使用
+     */
+    public final class Cursor {
+        private final int[] states = new int[maxDepth + 1];
+        private final int[] ranks = new int[maxDepth + 1];
+        private final int[] lengths = new int[maxDepth + 1];
+        private int size;
+        private int wordId = -1;
+
+        /**
+         * 输入一个字符,所有进行中的匹配及从该字符开始的新匹配同时转移;
+         * 同一位置结束的敏感词取开始最早(即最长)的一个,找到敏感词后清空所有匹配
+         *
+         * @param c       输入字符
+         * @param removed 已删除敏感词的字典序序号,升序排列
+         * @return 以该字符结束的敏感词长度,没有时返回0
+         */
+        public int next(char c, int[] removed) {
+            int count = 0;
+            int length = 0;
+            for (int i = 0; i <= size; i++) {
+                int transition = transition(i < size ? states[i] : root, c);
+                if (transition < 0) {
+                    continue;
+                }
+                int state = targets[transition];
+                int rank = (i < size ? ranks[i] : 0) + rankOffsets[transition];
+                int depth = (i < size ? lengths[i] : 0) + 1;
+                if (length == 0 && isFinal(state) && (removed.length == 0 || Arrays.binarySearch(removed, rank) < 0)) {
+                    length = depth;
+                    wordId = wordIds[rank];
+                }
+                if (childStart[state] < childStart[state + 1]) {
+                    states[count] = state;
+                    ranks[count] = rank;
+                    lengths[count] = depth;
+                    count++;
+                }
+            }
+            size = length > 0 ? 0 : count;
+            return length;
+        }
+
+        /**
+         * 最近一次找到的敏感词编号
+         *
+         * @return
+         */
+        public int wordId() {
+            return wordId;
+        }
+
+        /**
+         * 是否没有进行中的匹配
+         *
+         * @return
+         */
+        public boolean isIdle() {
+            return size == 0;
+        }
+
+        public void reset() {
+            size = 0;
+        }
+    }
+
+    /**
+     * 按字典序插入敏感词构建最小自动机;状态在不再变化时才登记,子状态总是先于父状态登记并编号,
+     * 登记时与已有的等价状态合并
+     */
+    private static final class Builder {
+        private final Map<String, Integer> register = new HashMap<>();
+        private int[] childStart = new int[1024];
+        private char[] childChars = new char[1024];
+        private int[] targets = new int[1024];
+        private int[] rankOffsets = new int[1024];
+        private long[] finals = new long[16];
+        /* 每个已登记状态能到达的敏感词数量*/
+        private int[] counts = new int[1024];
+        private int stateCount;
+        private int transitionCount;
+
+        private MinimizedDFA build(List<String> words, int[] wordIds) {
+            //path[i]为上一个敏感词前i个字符到达的未登记状态
+            List<PendingState> path = Lists.newArrayList();
+            path.add(new PendingState());
+            String previous = "";
+            int maxDepth = 0;
+            for (String word : words) {
+                int prefix = 0;
+                while (prefix < previous.length() && prefix < word.length() && previous.charAt(prefix) == word.charAt(prefix)) {
+                    prefix++;
+                }
+                minimize(path, prefix);
+                for (int i = prefix; i < word.length(); i++) {
+                    path.get(i).add(word.charAt(i));
+                    path.add(new PendingState());
+                }
+                path.get(word.length()).intactWord = true;
+                previous = word;
+                maxDepth = Math.max(maxDepth, word.length());
+            }
+            minimize(path, 0);
+            int root = register(path.get(0));
+            return new MinimizedDFA(root, Arrays.copyOf(childStart, stateCount + 1), Arrays.copyOf(childChars, transitionCount),
+                    Arrays.copyOf(targets, transitionCount), Arrays.copyOf(rankOffsets, transitionCount),
+                    Arrays.copyOf(finals, (stateCount + 63) >>> 6), wordIds, maxDepth);
+        }
+
+        /**
+         * 从末尾开始登记path中深度大于depth的状态,并将其父状态的最后一个转移指向登记的状态
+         */
+        private void minimize(List<PendingState> path, int depth) {
+            for (int i = path.size() - 1; i > depth; i--) {
+                PendingState state = path.remove(i);
+                path.get(i - 1).setLastTarget(register(state));
+            }
+        }
+
+        /**
+         * 登记状态,已有等价状态时返回已有状态的编号
+         */
+        private int register(PendingState state) {
+            StringBuilder key = new StringBuilder(state.size * 3 + 1);
+            key.append(state.intactWord ? '1' : '0');
+            for (int i = 0; i < state.size; i++) {
+                key.append(state.chars[i]).append((char) (state.targets[i] >>> 16)).append((char) state.targets[i]);
+            }
+            return register.computeIfAbsent(key.toString(), k -> add(state));
+        }
+
+        private int add(PendingState state) {
+            int id = stateCount++;
+            if (stateCount + 1 > childStart.length) {
+                childStart = Arrays.copyOf(childStart, childStart.length * 2);
+                counts = Arrays.copyOf(counts, counts.length * 2);
+            }
+            if (id >>> 6 >= finals.length) {
+                finals = Arrays.copyOf(finals, finals.length * 2);
+            }
+            if (transitionCount + state.size > childChars.length) {
+                int capacity = Math.max(childChars.length * 2, transitionCount + state.size);
+                childChars = Arrays.copyOf(childChars, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                rankOffsets = Arrays.copyOf(rankOffsets, capacity);
+            }
+            childStart[id] = transitionCount;
+            int count = state.intactWord ? 1 : 0;
+            if (state.intactWord) {
+                finals[id >>> 6] |= 1L << id;
+            }
+            for (int i = 0; i < state.size; i++) {
+                childChars[transitionCount] = state.chars[i];
+                targets[transitionCount] = state.targets[i];
+                rankOffsets[transitionCount] = count;
+                count += counts[state.targets[i]];
+                transitionCount++;
+            }
+            childStart[id + 1] = transitionCount;
+            counts[id] = count;
+            return id;
+        }
+    }
+
+    /**
+     * 构建过程中还未登记的状态,转移按字符升序添加,只有最后一个转移的目标可能还未登记
+     */
+    private static final class PendingState {
+        private char[] chars = new char[2];
+        private int[] targets = new int[2];
+        private int size;
+        private boolean intactWord;
+
+        private void add(char c) {
+            if (size == chars.length) {
+                chars = Arrays.copyOf(chars, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            chars[size] = c;
+            targets[size++] = -1;
+        }
+
+        private void setLastTarget(int target) {
+            targets[size - 1] = target;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.util;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 在线程池上并行构建{@link CompiledDFA},结果与顺序构建完全相同<br>
+ * 敏感词按首字符分片,每个分片排序后直接按层生成子自动机的状态:排序后第d层的状态即为所有长度为d的不同前缀,
+ * 且恰好按层次遍历顺序排列,不需要构建DFANode/AVLTree;各分片的同一层按首字符顺序拼接即得到最终的状态编号<br>
+ * 失败指针只指向更浅的状态,拼接后逐层计算,同一层的状态分块并行处理
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+final class ParallelDFABuilder {
+
+    /* 每个分片任务的最少敏感词数*/
+    private static final int MIN_SHARD_WORDS = 1 << 12;
+    /* 计算失败指针时每个任务处理的最少父状态数*/
+    private static final int MIN_CHUNK_STATES = 1 << 14;
+
+    private ParallelDFABuilder() {
+    }
+
+    static CompiledDFA build(List<String> words, Executor executor) {
+        List<Entry> entries = Lists.newArrayList();
+        if (words != null) {
+            for (int i = 0; i < words.size(); i++) {
+                String word = words.get(i);
+                if (word != null && !word.isEmpty()) {
+                    entries.add(new Entry(word, i));
+                }
+            }
+        }
+        //按首字符分组,组内保持敏感词编号顺序
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(entry -> entry.word.charAt(0)));
+        int tasks = Runtime.getRuntime().availableProcessors() * 4;
+        int shardWords = Math.max(MIN_SHARD_WORDS, sorted.length / tasks);
+        List<Shard> shards = Lists.newArrayList();
+        int from = 0;
+        while (from < sorted.length) {
+            int to = Math.min(sorted.length, from + shardWords);
+            //同一首字符的敏感词必须在同一分片中
+            while (to < sorted.length && sorted[to].word.charAt(0) == sorted[to - 1].word.charAt(0)) {
+                to++;
+            }
+            shards.add(new Shard(sorted, from, to));
+            from = to;
+        }
+        run(shards, executor);
+
+        int maxDepth = 0;
+        for (Shard shard : shards) {
+            maxDepth = Math.max(maxDepth, shard.levels.size());
+        }
+        //levelStart[d]为第d层第一个状态的编号,开始状态为第0层
+        int[] levelStart = new int[maxDepth + 2];
+        levelStart[1] = 1;
+        int[][] shardStart = new int[maxDepth + 1][shards.size()];
+        for (int d = 1; d <= maxDepth; d++) {
+            int state = levelStart[d];
+            for (int k = 0; k < shards.size(); k++) {
+                shardStart[d][k] = state;
+                state += shards.get(k).size(d);
+            }
+            levelStart[d + 1] = state;
+        }
+        int count = levelStart[maxDepth + 1];
+
+        int[] childStart = new int[count + 1];
+        char[] childChars = new char[count - 1];
+        int[] wordIds = new int[count];
+        wordIds[CompiledDFA.ROOT] = -1;
+        //先在childStart[i + 1]中保存状态i的转移数,拼接后再累加
+        childStart[CompiledDFA.ROOT + 1] = maxDepth == 0 ? 0 : levelStart[2] - levelStart[1];
+        List<Runnable> copies = Lists.newArrayList();
+        for (int k = 0; k < shards.size(); k++) {
+            Shard shard = shards.get(k);
+            int index = k;
+            copies.add(() -> {
+                for (int d = 1; d <= shard.levels.size(); d++) {
+                    Level level = shard.levels.get(d - 1);
+                    int state = shardStart[d][index];
+                    System.arraycopy(level.chars, 0, childChars, state - 1, level.size);
+                    System.arraycopy(level.wordIds, 0, wordIds, state, level.size);
+                    System.arraycopy(level.children, 0, childStart, state + 1, level.size);
+                }
+            });
+        }
+        run(copies, executor);
+        for (int i = 0; i < count; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+
+        int[] failures = new int[count];
+        int[] matchLengths = new int[count];
+        int[] outputs = new int[count];
+        for (int d = 1; d <= maxDepth; d++) {
+            int depth = d;
+            //第d层的状态都是第d-1层状态的转移
+            int parentFrom = levelStart[d - 1];
+            int parentTo = levelStart[d];
+            int chunk = Math.max(MIN_CHUNK_STATES, (parentTo - parentFrom) / tasks);
+            List<Runnable> levelTasks = Lists.newArrayList();
+            for (int p = parentFrom; p < parentTo; p += chunk) {
+                int chunkFrom = p;
+                int chunkTo = Math.min(parentTo, p + chunk);
+                levelTasks.add(() -> {
+                    for (int parent = chunkFrom; parent < chunkTo; parent++) {
+                        for (int t = childStart[parent]; t < childStart[parent + 1]; t++) {
+                            int state = t + 1;
+                            int failure = parent == CompiledDFA.ROOT ? CompiledDFA.ROOT
+                                    : failure(childStart, childChars, failures, failures[parent], childChars[t]);
+                            failures[state] = failure;
+                            boolean intactWord = wordIds[state] >= 0;
+                            matchLengths[state] = intactWord ? depth : matchLengths[failure];
+                            outputs[state] = intactWord ? state : outputs[failure];
+                        }
+                    }
+                });
+            }
+            run(levelTasks, executor);
+        }
+        return new CompiledDFA(childStart, childChars, failures, matchLengths, outputs, wordIds, maxDepth);
+    }
+
+    /**
+     * 从父状态的失败指针开始沿失败链查找输入字符的转移
+     */
+    private static int failure(int[] childStart, char[] childChars, int[] failures, int state, char c) {
+        while (true) {
+            int low = childStart[state];
+            int high = childStart[state + 1] - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char value = childChars[middle];
+                if (value < c) {
+                    low = middle + 1;
+                } else if (value > c) {
+                    high = middle - 1;
+                } else {
+                    return middle + 1;
+                }
+            }
+            if (state == CompiledDFA.ROOT) {
+                return CompiledDFA.ROOT;
+            }
+            state = failures[state];
+        }
+    }
+
+    private static void run(List<? extends Runnable> tasks, Executor executor) {
+        if (tasks.size() == 1) {
+            tasks.get(0).run();
+            return;
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = CompletableFuture.runAsync(tasks.get(i), executor);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private static final class Entry {
+        private final String word;
+        private final int wordId;
+
+        private Entry(String word, int wordId) {
+            this.word = word;
+            this.wordId = wordId;
+        }
+    }
+
+    /**
+     * 一个分片的子自动机,按层保存状态
+     */
+    private static final class Shard implements Runnable {
+        private final Entry[] entries;
+        private final int from;
+        private final int to;
+        private final List<Level> levels = Lists.newArrayList();
+
+        private Shard(Entry[] entries, int from, int to) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        private int size(int depth) {
+            return depth <= levels.size() ? levels.get(depth - 1).size : 0;
+        }
+
+        /**
+         * 排序后每个敏感词在与上一个敏感词的公共前缀之后的每个前缀都是一个新状态,追加到对应层的末尾;
+         * 新状态的父状态总是上一层最后一个状态
+         */
+        @Override
+        public void run() {
+            //排序是稳定的,重复的敏感词保留编号最小的一个
+            Arrays.sort(entries, from, to, Comparator.comparing(entry -> entry.word));
+            String previous = "";
+            for (int i = from; i < to; i++) {
+                String word = entries[i].word;
+                int prefix = 0;
+                int limit = Math.min(previous.length(), word.length());
+                while (prefix < limit && previous.charAt(prefix) == word.charAt(prefix)) {
+                    prefix++;
+                }
+                if (prefix == word.length()) {
+                    continue;
+                }
+                for (int d = prefix + 1; d <= word.length(); d++) {
+                    if (levels.size() < d) {
+                        levels.add(new Level());
+                    }
+                    levels.get(d - 1).add(word.charAt(d - 1), d == word.length() ? entries[i].wordId : -1);
+                    if (d > 1) {
+                        Level parent = levels.get(d - 2);
+                        parent.children[parent.size - 1]++;
+                    }
+                }
+                previous = word;
+            }
+        }
+    }
+
+    /**
+     * 子自动机的一层状态:转移字符、转移数和敏感词编号
+     */
+    private static final class Level {
+        private char[] chars = new char[16];
+        private int[] children = new int[16];
+        private int[] wordIds = new int[16];
+        private int size;
+
+        private void add(char c, int wordId) {
+            if (size == chars.length) {
+                chars = Arrays.copyOf(chars, size * 2);
+                children = Arrays.copyOf(children, size * 2);
+                wordIds = Arrays.copyOf(wordIds, size * 2);
+            }
+            chars[size] = c;
+            wordIds[size++] = wordId;
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package com.util;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 敏感词模式,用于字面敏感词无法穷举的变形(eg:"法[0-9]轮"、"法.{0,2}轮功"),语法:
+ * <pre>
+ * c       普通字符按字面匹配,特殊字符使用\转义
+ * .       任意一个字符
+ * [...]   字符类,支持范围(a-z)和取反([^...])
+ * x?      前一个元素可选
+ * x{n}    前一个元素重复n次
+ * x{m,n}  前一个元素重复m到n次
+ * </pre>
+ * 重复次数必须有上限,因此每个模式能匹配的文本长度也有上限;模式至少包含一个必选元素<br>
+ * 模式没有并入敏感词的确定自动机:字符类和可选间隔展开后的子集构造会使状态数按重复次数指数增长,
+ * 因此模式编译为按位置编号的非确定自动机,扫描时与敏感词自动机在同一遍扫描中同时转移,文本仍然只遍历一次;
+ * 每个状态只记录开始最早的匹配,匹配规则与敏感词一致:以最先结束的为准,同一位置结束的取最长的一个<br>
+ * 每个字符的代价:按首字符索引找到能以该字符开始的模式,再对这些模式和进行中的模式逐个转移,
+ * 每个模式的代价与其展开后的元素数成正比;进行中的模式只能是在之前{@link #maxLength()}个字符内开始的模式,
+ * 最坏情况下为所有模式展开后的元素总数,与敏感词自动机的大小无关<br>
+ * 普通字符按过滤器的归一化规则处理,与归一化之后的字符比较;字符类和.按原始字符匹配(eg:开启大小写转换时[A-Z]仍然只匹配大写字母);
+ * 构建完成后不可修改,可在多线程间共享
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public final class SensitivePatterns {
+
+    /* 重复次数上限*/
+    private static final int MAX_REPEAT = 255;
+    /* 状态上没有进行中的匹配*/
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final List<String> sources;
+    /* 所有模式的元素依次排列,模式i的元素为[patternStart[i], patternStart[i+1])*/
+    private final int[] patternStart;
+    private final CharClass[] classes;
+    private final boolean[] optional;
+    private final int maxLength;
+    /* 首字符索引:按能开始的模式集合把字符划分为区间,startGroup[c]为字符c所在区间的编号*/
+    private final char[] startGroup = new char[Character.MAX_VALUE + 1];
+    /* 区间g中能开始匹配的模式为groupPatterns[groupStart[g], groupStart[g+1]),按模式编号升序*/
+    private final int[] groupStart;
+    private final int[] groupPatterns;
+
+    private SensitivePatterns(List<String> sources, int[] patternStart, CharClass[] classes, boolean[] optional, int maxLength,
+                              CharNormalizer charNormalizer) {
+        this.sources = sources;
+        this.patternStart = patternStart;
+        this.classes = classes;
+        this.optional = optional;
+        this.maxLength = maxLength;
+
+        int patternCount = patternStart.length - 1;
+        char[][] startRanges = new char[patternCount][];
+        //区间的开始字符
+        long[] bounds = new long[(Character.MAX_VALUE + 1) >>> 6];
+        bounds[0] = 1L;
+        for (int p = 0; p < patternCount; p++) {
+            startRanges[p] = startRanges(p, charNormalizer);
+            for (int i = 0; i < startRanges[p].length; i += 2) {
+                bounds[startRanges[p][i] >>> 6] |= 1L << startRanges[p][i];
+                int next = startRanges[p][i + 1] + 1;
+                if (next <= Character.MAX_VALUE) {
+                    bounds[next >>> 6] |= 1L << next;
+                }
+            }
+        }
+        int group = -1;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if ((bounds[c >>> 6] & (1L << c)) != 0) {
+                group++;
+            }
+            startGroup[c] = (char) group;
+        }
+        groupStart = new int[group + 2];
+        for (int p = 0; p < patternCount; p++) {
+            for (int i = 0; i < startRanges[p].length; i += 2) {
+                for (int g = startGroup[startRanges[p][i]]; g <= startGroup[startRanges[p][i + 1]]; g++) {
+                    groupStart[g + 1]++;
+                }
+            }
+        }
+        for (int g = 0; g <= group; g++) {
+            groupStart[g + 1] += groupStart[g];
+        }
+        groupPatterns = new int[groupStart[group + 1]];
+        int[] fill = Arrays.copyOf(groupStart, group + 1);
+        for (int p = 0; p < patternCount; p++) {
+            for (int i = 0; i < startRanges[p].length; i += 2) {
+                for (int g = startGroup[startRanges[p][i]]; g <= startGroup[startRanges[p][i + 1]]; g++) {
+                    groupPatterns[fill[g]++] = p;
+                }
+            }
+        }
+    }
+
+    /**
+     * 模式可能的首字符(归一化之后):第一个必选元素及其之前所有可选元素的字符类的并集,
+     * 按原始字符匹配的字符类换算为其中的字符归一化之后的字符,扫描时再按原始字符检查
+     *
+     * @return 合并后按升序排列的闭区间
+     */
+    private char[] startRanges(int pattern, CharNormalizer charNormalizer) {
+        List<char[]> ranges = Lists.newArrayList();
+        for (int k = patternStart[pattern]; k < patternStart[pattern + 1]; k++) {
+            char[] matching = classes[k].matchingRanges();
+            if (classes[k].raw && charNormalizer != null) {
+                matching = normalizeRanges(matching, charNormalizer);
+            }
+            for (int i = 0; i < matching.length; i += 2) {
+                ranges.add(new char[]{matching[i], matching[i + 1]});
+            }
+            if (!optional[k]) {
+                break;
+            }
+        }
+        return CharClass.merge(ranges);
+    }
+
+    /**
+     * 区间中的字符归一化之后的字符
+     *
+     * @return 按升序排列的闭区间
+     */
+    private static char[] normalizeRanges(char[] ranges, CharNormalizer charNormalizer) {
+        List<char[]> normalized = Lists.newArrayList();
+        for (int i = 0; i < ranges.length; i += 2) {
+            for (int c = ranges[i]; c <= ranges[i + 1]; c++) {
+                char n = charNormalizer.normalize((char) c);
+                normalized.add(new char[]{n, n});
+            }
+        }
+        return CharClass.merge(normalized);
+    }
+
+    /**
+     * 编译模式,模式在列表中的下标即为模式编号
+     *
+     * @param patterns       模式
+     * @param charNormalizer 字符归一化规则,为null时不做归一化
+     * @return 没有模式时返回null
+     * @throws IllegalArgumentException 模式语法不正确
+     */
+    public static SensitivePatterns compile(List<String> patterns, CharNormalizer charNormalizer) {
+        if (patterns == null || patterns.isEmpty()) {
+            return null;
+        }
+        List<CharClass> classes = Lists.newArrayList();
+        List<Boolean> optional = Lists.newArrayList();
+        int[] patternStart = new int[patterns.size() + 1];
+        int maxLength = 0;
+        for (int i = 0; i < patterns.size(); i++) {
+            patternStart[i] = classes.size();
+            maxLength = Math.max(maxLength, parse(patterns.get(i), charNormalizer, classes, optional));
+        }
+        patternStart[patterns.size()] = classes.size();
+        boolean[] flags = new boolean[optional.size()];
+        for (int i = 0; i < flags.length; i++) {
+            flags[i] = optional.get(i);
+        }
+        return new SensitivePatterns(Collections.unmodifiableList(Lists.newArrayList(patterns)), patternStart,
+                classes.toArray(new CharClass[0]), flags, maxLength, charNormalizer);
+    }
+
+    /**
+     * 解析一个模式,按重复次数展开后的元素依次加入classes和optional
+     *
+     * @return 模式能匹配的最长文本长度
+     */
+    private static int parse(String pattern, CharNormalizer charNormalizer, List<CharClass> classes, List<Boolean> optional) {
+        int length = 0;
+        int mandatory = 0;
+        int i = 0;
+        while (i < pattern.length()) {
+            CharClass element;
+            char c = pattern.charAt(i++);
+            if (c == '.') {
+                element = CharClass.ANY;
+            } else if (c == '[') {
+                int end = i;
+                while (end < pattern.length() && (pattern.charAt(end) != ']' || end == i)) {
+                    end += pattern.charAt(end) == '\\' ? 2 : 1;
+                }
+                if (end >= pattern.length()) {
+                    throw illegal(pattern, "unclosed character class");
+                }
+                element = CharClass.parse(pattern, i, end);
+                i = end + 1;
+            } else if (c == '?' || c == '{' || c == '*' || c == '+' || c == ']' || c == '}') {
+                throw illegal(pattern, "unexpected '" + c + "' at " + (i - 1));
+            } else {
+                if (c == '\\') {
+                    if (i == pattern.length()) {
+                        throw illegal(pattern, "trailing '\\'");
+                    }
+                    c = pattern.charAt(i++);
+                }
+                element = CharClass.of(charNormalizer == null ? c : charNormalizer.normalize(c));
+            }
+
+            int min = 1;
+            int max = 1;
+            if (i < pattern.length() && pattern.charAt(i) == '?') {
+                min = 0;
+                i++;
+            } else if (i < pattern.length() && pattern.charAt(i) == '{') {
+                int end = pattern.indexOf('}', i);
+                if (end < 0) {
+                    throw illegal(pattern, "unclosed repetition");
+                }
+                String[] bounds = pattern.substring(i + 1, end).split(",", -1);
+                try {
+                    min = Integer.parseInt(bounds[0].trim());
+                    max = bounds.length == 1 ? min : Integer.parseInt(bounds[1].trim());
+                } catch (NumberFormatException e) {
+                    throw illegal(pattern, "repetition must be {n} or {m,n}");
+                }
+                if (bounds.length > 2 || min < 0 || max < min || max > MAX_REPEAT) {
+                    throw illegal(pattern, "repetition must be {n} or {m,n} with 0 <= m <= n <= " + MAX_REPEAT);
+                }
+                i = end + 1;
+            }
+            for (int k = 0; k < max; k++) {
+                classes.add(element);
+                optional.add(k >= min);
+            }
+            length += max;
+            mandatory += min;
+        }
+        if (mandatory == 0) {
+            throw illegal(pattern, "pattern can match empty text");
+        }
+        return length;
+    }
+
+    private static IllegalArgumentException illegal(String pattern, String reason) {
+        return new IllegalArgumentException("illegal pattern: " + pattern + ", " + reason);
+    }
+
+    /**
+     * 返回模式原文
+     *
+     * @param patternId 模式编号
+     * @return
+     */
+    public String getPattern(int patternId) {
+        return sources.get(patternId);
+    }
+
+    public List<String> getPatterns() {
+        return sources;
+    }
+
+    /**
+     * 返回模式能匹配的最长文本长度
+     *
+     * @return
+     */
+    public int maxLength() {
+        return maxLength;
+    }
+
+    /**
+     * 将可能作为模式匹配第一个字符的字符加入位图
+     *
+     * @param bitmap 按字符直接寻址的位图
+     * @return
+     */
+    long[] startChars(long[] bitmap) {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            int group = startGroup[c];
+            if (groupStart[group] < groupStart[group + 1]) {
+                bitmap[c >>> 6] |= 1L << c;
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * 扫描时的匹配状态:模式的第k个状态表示已匹配前k个元素,记录到达该状态的最早的匹配开始位置;
+     * 每个实例只能在一个线程中使用
+     */
+    public final class Cursor {
+        /* 模式i的状态为[patternStart[i] + i, patternStart[i+1] + i]*/
+        private final int[] starts = new int[classes.length + patternStart.length - 1];
+        private final boolean[] active = new boolean[patternStart.length - 1];
+        /* 进行中的模式编号,liveCount之后的元素无效*/
+        private int[] live = new int[patternStart.length - 1];
+        private int[] nextLive = new int[patternStart.length - 1];
+        private int liveCount;
+        private int position;
+        private int patternId = -1;
+        /* 本次输入中找到的最长匹配长度*/
+        private int length;
+
+        public Cursor() {
+            Arrays.fill(starts, NONE);
+        }
+
+        /**
+         * 输入一个没有归一化规则时的字符
+         *
+         * @param c
+         * @return 以该字符结束的匹配长度,没有时返回0
+         * @see #next(char, char)
+         */
+        public int next(char c) {
+            return next(c, c);
+        }
+
+        /**
+         * 输入一个字符,进行中的模式和能以该字符开始的模式同时转移,同一位置结束的匹配取最长的一个,
+         * 长度相同时取编号最小的模式,找到后清空所有匹配
+         *
+         * @param raw 原始字符,字符类按原始字符匹配
+         * @param c   归一化之后的字符,普通字符按归一化之后的字符匹配
+         * @return 以该字符结束的匹配长度,没有时返回0
+         */
+        public int next(char raw, char c) {
+            length = 0;
+            int count = 0;
+            int group = startGroup[c];
+            for (int i = groupStart[group]; i < groupStart[group + 1]; i++) {
+                int p = groupPatterns[i];
+                //进行中的模式在下面统一处理
+                if (!active[p] && step(p, raw, c)) {
+                    nextLive[count++] = p;
+                }
+            }
+            for (int i = 0; i < liveCount; i++) {
+                int p = live[i];
+                if (step(p, raw, c)) {
+                    nextLive[count++] = p;
+                }
+            }
+            int[] swap = live;
+            live = nextLive;
+            nextLive = swap;
+            liveCount = count;
+            position++;
+            if (length > 0) {
+                reset();
+            }
+            return length;
+        }
+
+        /**
+         * 模式p输入一个字符进行转移,结束的匹配更新length和patternId
+         *
+         * @return 转移后是否还有进行中的匹配
+         */
+        private boolean step(int p, char raw, char c) {
+            int first = patternStart[p];
+            int last = patternStart[p + 1];
+            int base = first + p;
+            //从该字符开始一个新的匹配,并跳过可选元素
+            starts[base] = position;
+            close(first, last, base);
+            //第k个元素匹配时状态k转移到状态k+1,倒序处理避免同一字符转移两次
+            for (int k = last - 1; k >= first; k--) {
+                int start = starts[base + k - first];
+                starts[base + k - first + 1] = start != NONE && classes[k].contains(classes[k].raw ? raw : c) ? start : NONE;
+            }
+            starts[base] = NONE;
+            close(first, last, base);
+            int end = base + last - first;
+            boolean alive = false;
+            for (int s = base + 1; s < end; s++) {
+                alive |= starts[s] != NONE;
+            }
+            active[p] = alive;
+            if (starts[end] != NONE) {
+                int matched = position + 1 - starts[end];
+                if (matched > length || (matched == length && p < patternId)) {
+                    length = matched;
+                    patternId = p;
+                }
+                starts[end] = NONE;
+            }
+            return alive;
+        }
+
+        /**
+         * 可选元素可以直接跳过,到达其前一状态的匹配同样到达其后一状态
+         */
+        private void close(int first, int last, int base) {
+            for (int k = first; k < last; k++) {
+                if (optional[k]) {
+                    int s = base + k - first;
+                    starts[s + 1] = Math.min(starts[s + 1], starts[s]);
+                }
+            }
+        }
+
+        /**
+         * 最近一次匹配的模式编号
+         *
+         * @return
+         */
+        public int patternId() {
+            return patternId;
+        }
+
+        /**
+         * 是否没有进行中的匹配
+         *
+         * @return
+         */
+        public boolean isIdle() {
+            return liveCount == 0;
+        }
+
+        public void reset() {
+            for (int i = 0; i < liveCount; i++) {
+                int p = live[i];
+                Arrays.fill(starts, patternStart[p] + p, patternStart[p + 1] + p + 1, NONE);
+                active[p] = false;
+            }
+            liveCount = 0;
+        }
+    }
+
+    /**
+     * 字符类,保存合并后按升序排列的闭区间
+     */
+    private static final class CharClass {
+        private static final CharClass ANY = new CharClass(new char[]{0, Character.MAX_VALUE}, false, true);
+
+        private final char[] ranges;
+        private final boolean negated;
+        /* 按原始字符匹配([...]和.),否则按归一化之后的字符匹配(普通字符)*/
+        private final boolean raw;
+
+        private CharClass(char[] ranges, boolean negated, boolean raw) {
+            this.ranges = ranges;
+            this.negated = negated;
+            this.raw = raw;
+        }
+
+        /**
+         * @param c 归一化之后的普通字符
+         */
+        private static CharClass of(char c) {
+            return new CharClass(new char[]{c, c}, false, false);
+        }
+
+        /**
+         * 解析[from, to)之间的字符类内容(不包含方括号)
+         */
+        private static CharClass parse(String pattern, int from, int to) {
+            boolean negated = from < to && pattern.charAt(from) == '^';
+            if (negated) {
+                from++;
+            }
+            List<char[]> ranges = Lists.newArrayList();
+            int i = from;
+            while (i < to) {
+                char low = pattern.charAt(i) == '\\' ? pattern.charAt(++i) : pattern.charAt(i);
+                i++;
+                char high = low;
+                if (i + 1 < to && pattern.charAt(i) == '-') {
+                    high = pattern.charAt(i + 1) == '\\' ? pattern.charAt(i + 2) : pattern.charAt(i + 1);
+                    i += pattern.charAt(i + 1) == '\\' ? 3 : 2;
+                    if (high < low) {
+                        throw illegal(pattern, "illegal range " + low + "-" + high);
+                    }
+                }
+                ranges.add(new char[]{low, high});
+            }
+            if (ranges.isEmpty()) {
+                throw illegal(pattern, "empty character class");
+            }
+            return new CharClass(merge(ranges), negated, true);
+        }
+
+        /**
+         * 合并闭区间
+         *
+         * @return 合并后按升序排列的闭区间
+         */
+        private static char[] merge(List<char[]> ranges) {
+            ranges.sort((a, b) -> a[0] - b[0]);
+            char[] merged = new char[ranges.size() * 2];
+            int size = 0;
+            for (char[] range : ranges) {
+                if (size > 0 && range[0] <= merged[size - 1] + 1) {
+                    merged[size - 1] = (char) Math.max(merged[size - 1], range[1]);
+                } else {
+                    merged[size++] = range[0];
+                    merged[size++] = range[1];
+                }
+            }
+            return Arrays.copyOf(merged, size);
+        }
+
+        private boolean contains(char c) {
+            int low = 0;
+            int high = (ranges.length >>> 1) - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (ranges[middle << 1] > c) {
+                    high = middle - 1;
+                } else if (ranges[(middle << 1) + 1] < c) {
+                    low = middle + 1;
+                } else {
+                    return !negated;
+                }
+            }
+            return negated;
+        }
+
+        /**
+         * 字符类包含的字符,取反时返回补集
+         *
+         * @return 按升序排列的闭区间
+         */
+        private char[] matchingRanges() {
+            if (!negated) {
+                return ranges;
+            }
+            char[] complement = new char[ranges.length + 2];
+            int size = 0;
+            int next = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > next) {
+                    complement[size++] = (char) next;
+                    complement[size++] = (char) (ranges[i] - 1);
+                }
+                next = ranges[i + 1] + 1;
+            }
+            if (next <= Character.MAX_VALUE) {
+                complement[size++] = (char) next;
+                complement[size++] = Character.MAX_VALUE;
+            }
+            return Arrays.copyOf(complement, size);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.util;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 在线程池上并行处理一批文本,所有任务共享同一个不可变的过滤器快照<br>
+ * 短文本按字符总数分组,每组一个任务,避免大量小任务的调度开销;
+ * 超长文本切分为多段并行扫描,每段从段首向前回退(最长敏感词长度-1)个字符开始扫描以找到跨越分段边界的敏感词,
+ * 只处理在本段内结束的敏感词,回退区间内结束的敏感词由上一段处理<br>
+ * 顺序扫描在匹配后重置状态,分段并行扫描假设回退区间内没有顺序扫描的匹配结束位置;
+ * 所有分段扫描完成后按顺序检查每个分段边界,假设不成立时从上一个匹配结束位置重新扫描,
+ * 直到与分段扫描的状态一致(在同一位置匹配结束,或两者都已有(最长敏感词长度-1)个字符没有匹配),
+ * 因此结果与逐个文本顺序处理完全相同;配置了跳过字符时敏感词跨度没有上限,不对文本分段
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+final class SensitiveWordBatch {
+
+    /* 每个任务处理的短文本字符总数*/
+    private static final int GROUP_CHARS = 1 << 14;
+    /* 超过该长度的文本分段并行扫描,同时也是分段长度*/
+    private static final int SPLIT_THRESHOLD = 1 << 16;
+
+    private final DFASensitiveWordFilter filter;
+    private final Executor executor;
+
+    SensitiveWordBatch(DFASensitiveWordFilter filter, Executor executor) {
+        this.filter = filter;
+        this.executor = executor;
+    }
+
+    boolean[] exist(char[][] texts) {
+        boolean[] result = new boolean[texts.length];
+        run(texts, (index, chars) -> result[index] = filter.existSensitiveWord(chars),
+                (index, chars, from, to) -> {
+                    //回退区间内找到的敏感词同样存在于文本中
+                    filter.scan(chars, warmUp(from), to, (start, end, wordId) -> {
+                        result[index] = true;
+                        return false;
+                    });
+                });
+        return result;
+    }
+
+    char[][] shield(char[][] texts, char shieldChar) {
+        char[][] result = new char[texts.length][];
+        run(texts, (index, chars) -> result[index] = filter.shield(chars, shieldChar),
+                (index, chars, matches) -> {
+                    char[] newChars = Arrays.copyOf(chars, chars.length);
+                    for (int i = 0; i < matches.size(); i++) {
+                        Arrays.fill(newChars, matches.start(i), matches.end(i), shieldChar);
+                    }
+                    result[index] = newChars;
+                });
+        return result;
+    }
+
+    char[][] delete(char[][] texts) {
+        char[][] result = new char[texts.length][];
+        run(texts, (index, chars) -> result[index] = filter.delete(chars),
+                (index, chars, matches) -> {
+                    char[] newChars = new char[chars.length];
+                    int length = 0;
+                    int written = 0;
+                    for (int i = 0; i < matches.size(); i++) {
+                        int start = matches.start(i);
+                        System.arraycopy(chars, written, newChars, length, start - written);
+                        length += start - written;
+                        written = matches.end(i);
+                    }
+                    System.arraycopy(chars, written, newChars, length, chars.length - written);
+                    length += chars.length - written;
+                    result[index] = Arrays.copyOf(newChars, length);
+                });
+        return result;
+    }
+
+    private int warmUp(int from) {
+        return Math.max(0, from - (filter.maxWordLength() - 1));
+    }
+
+    private void run(char[][] texts, TextTask textTask, SegmentTask segmentTask) {
+        run(texts, textTask, (index, chars, from, to) -> {
+        }, segmentTask);
+    }
+
+    /**
+     * 划分任务并在线程池上执行,等待所有任务完成
+     *
+     * @param textTask    处理一个完整文本
+     * @param prepare     在提交任务前对每个分段调用,用于初始化分段共享的结果
+     * @param segmentTask 处理超长文本的一个分段
+     */
+    private void run(char[][] texts, TextTask textTask, SegmentTask prepare, SegmentTask segmentTask) {
+        boolean split = !filter.hasSkipChars();
+        List<Runnable> tasks = Lists.newArrayList();
+        int groupStart = 0;
+        int groupChars = 0;
+        for (int i = 0; i < texts.length; i++) {
+            char[] chars = texts[i];
+            if (split && chars.length > SPLIT_THRESHOLD) {
+                int index = i;
+                for (int from = 0; from < chars.length; from += SPLIT_THRESHOLD) {
+                    int segmentFrom = from;
+                    int segmentTo = Math.min(chars.length, from + SPLIT_THRESHOLD);
+                    prepare.run(index, chars, segmentFrom, segmentTo);
+                    tasks.add(() -> segmentTask.run(index, chars, segmentFrom, segmentTo));
+                }
+                continue;
+            }
+            groupChars += chars.length;
+            if (groupChars >= GROUP_CHARS) {
+                tasks.add(group(texts, groupStart, i + 1, textTask, split));
+                groupStart = i + 1;
+                groupChars = 0;
+            }
+        }
+        tasks.add(group(texts, groupStart, texts.length, textTask, split));
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = CompletableFuture.runAsync(tasks.get(i), executor);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * 分段扫描超长文本,记录每段从回退位置开始扫描到的所有匹配,由分段边界检查得到与顺序扫描相同的匹配
+     *
+     * @param textTask  处理一个完整文本
+     * @param matchTask 处理超长文本顺序扫描的全部匹配
+     */
+    private void run(char[][] texts, TextTask textTask, MatchTask matchTask) {
+        Matches[][] segments = new Matches[texts.length][];
+        run(texts, textTask, (index, chars, from, to) -> {
+            if (from == 0) {
+                segments[index] = new Matches[(chars.length + SPLIT_THRESHOLD - 1) / SPLIT_THRESHOLD];
+            }
+        }, (index, chars, from, to) -> {
+            Matches matches = new Matches();
+            filter.scan(chars, warmUp(from), to, (start, end, wordId) -> {
+                matches.add(start, end);
+                return true;
+            });
+            segments[index][from / SPLIT_THRESHOLD] = matches;
+        });
+        for (int i = 0; i < texts.length; i++) {
+            if (segments[i] != null) {
+                matchTask.run(i, texts[i], merge(texts[i], segments[i]));
+            }
+        }
+    }
+
+    /**
+     * 按顺序检查分段边界,得到与从头顺序扫描相同的匹配<br>
+     * 顺序扫描在段首之前最近一次匹配结束的位置不超过该段的回退位置时,两者从回退位置开始的扫描完全相同;
+     * 否则从该位置开始重新顺序扫描,直到与分段扫描的状态一致,之后分段扫描的匹配与顺序扫描相同
+     *
+     * @param segments 每段从回退位置开始扫描到的匹配
+     */
+    private Matches merge(char[] chars, Matches[] segments) {
+        Matches result = new Matches();
+        for (int k = 0; k < segments.length; k++) {
+            int from = k * SPLIT_THRESHOLD;
+            int to = Math.min(chars.length, from + SPLIT_THRESHOLD);
+            Matches segment = segments[k];
+            //顺序扫描最近一次匹配结束的位置,匹配后从开始状态重新扫描
+            int last = result.size() == 0 ? 0 : result.end(result.size() - 1);
+            int next = last <= warmUp(from) ? 0 : resync(chars, last, warmUp(from), to, segment, result);
+            for (int i = next; i < segment.size(); i++) {
+                if (segment.end(i) > from) {
+                    result.add(segment.start(i), segment.end(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 从顺序扫描最近一次匹配结束的位置重新扫描,把找到的匹配加入result,直到与分段扫描的状态一致:
+     * 两者在同一位置匹配结束后都回到开始状态;或者两者都已有(最长敏感词长度-1)个字符没有匹配,
+     * 此时状态只由这段字符决定
+     *
+     * @param last    顺序扫描最近一次匹配结束的位置
+     * @param begin   分段扫描的开始位置
+     * @param to      分段的结束位置
+     * @param segment 分段扫描的匹配
+     * @return 状态一致之后分段扫描的第一个匹配下标
+     */
+    private int resync(char[] chars, int last, int begin, int to, Matches segment, Matches result) {
+        int window = filter.maxWordLength() - 1;
+        //分段扫描在last之前最近一次回到开始状态的位置
+        int specLast = begin;
+        int next = 0;
+        while (next < segment.size() && segment.end(next) <= last) {
+            specLast = segment.end(next++);
+        }
+        if (specLast == last) {
+            return next;
+        }
+        int[] found = new int[2];
+        while (true) {
+            int until = Math.min(to, Math.max(last, specLast) + window);
+            found[1] = -1;
+            filter.scan(chars, last, until, (start, end, wordId) -> {
+                found[0] = start;
+                found[1] = end;
+                return false;
+            });
+            int specEnd = next < segment.size() ? segment.end(next) : Integer.MAX_VALUE;
+            if (found[1] >= 0 && found[1] <= specEnd) {
+                result.add(found[0], found[1]);
+                last = found[1];
+                if (found[1] == specEnd) {
+                    return next + 1;
+                }
+            } else if (specEnd <= until) {
+                //分段扫描先回到开始状态,扩大检查范围后重新扫描
+                specLast = specEnd;
+                next++;
+            } else {
+                //两者在[until - window, until)内都没有匹配,或已到达分段结束位置
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 依次处理[from, to)中的短文本,已分段的超长文本跳过
+     */
+    private static Runnable group(char[][] texts, int from, int to, TextTask textTask, boolean split) {
+        return () -> {
+            for (int i = from; i < to; i++) {
+                if (!split || texts[i].length <= SPLIT_THRESHOLD) {
+                    textTask.run(i, texts[i]);
+                }
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface TextTask {
+        void run(int index, char[] chars);
+    }
+
+    @FunctionalInterface
+    private interface SegmentTask {
+        void run(int index, char[] chars, int from, int to);
+    }
+
+    @FunctionalInterface
+    private interface MatchTask {
+        void run(int index, char[] chars, Matches matches);
+    }
+
+    /**
+     * 按结束位置排列的匹配区间
+     */
+    private static final class Matches {
+        /* 第i个匹配的开始位置和结束位置保存在ranges[2i]和ranges[2i + 1]*/
+        private int[] ranges = new int[16];
+        private int size;
+
+        void add(int start, int end) {
+            if (size * 2 == ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            }
+            ranges[size * 2] = start;
+            ranges[size * 2 + 1] = end;
+            size++;
+        }
+
+        int start(int i) {
+            return ranges[i * 2];
+        }
+
+        int end(int i) {
+            return ranges[i * 2 + 1];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 缓存短文本的敏感词匹配结果,用于大量重复出现的文本(eg:聊天中的问候语、表情、刷屏消息)<br>
+ * 缓存值为文本中敏感词的位置,同一条缓存可同时用于检查、删除和替换;缓存按文本内容查找,命中后再比较文本内容,不会因哈希冲突返回错误结果<br>
+ * 淘汰策略为TinyLFU:用Count-Min Sketch统计文本最近的访问频率,缓存占用超过内存预算时,
+ * 只有新文本的频率高于最久未访问的缓存时才淘汰该缓存并放入新文本,偶尔出现一次的文本不会挤掉高频文本<br>
+ * 每条缓存记录计算时使用的过滤器快照,过滤器更新后旧快照的缓存不再命中并被清空
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public class SensitiveWordCache {
+
+    /* 缓存分段数量,每段单独加锁*/
+    private static final int SEGMENTS = 16;
+    /* 每条缓存除文本和匹配位置外的估算占用字节数*/
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int[] NO_MATCH = new int[0];
+
+    private final Supplier<DFASensitiveWordFilter> filters;
+    private final int maxTextLength;
+    private final long segmentBudget;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final FrequencySketch sketch;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    /* 当前缓存对应的过滤器快照*/
+    private volatile DFASensitiveWordFilter snapshot;
+
+    /**
+     * @param filters       返回当前过滤器快照,eg:DFASensitiveWordFilter::getInstance
+     * @param maxBytes      缓存占用内存的估算上限
+     * @param maxTextLength 只缓存不超过该长度的文本
+     */
+    public SensitiveWordCache(Supplier<DFASensitiveWordFilter> filters, long maxBytes, int maxTextLength) {
+        if (maxBytes <= 0 || maxTextLength <= 0) {
+            throw new IllegalArgumentException("maxBytes: " + maxBytes + ", maxTextLength: " + maxTextLength);
+        }
+        this.filters = filters;
+        this.maxTextLength = maxTextLength;
+        this.segmentBudget = Math.max(1, maxBytes / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        sketch = new FrequencySketch(maxBytes / (ENTRY_OVERHEAD + 2 * Math.min(maxTextLength, 64)));
+    }
+
+    /**
+     * 缓存当前发布的过滤器的匹配结果,只缓存不超过256个字符的文本
+     *
+     * @param maxBytes 缓存占用内存的估算上限
+     */
+    public SensitiveWordCache(long maxBytes) {
+        this(DFASensitiveWordFilter::getInstance, maxBytes, 256);
+    }
+
+    /**
+     * 检查给定的字符串是否存在敏感词
+     *
+     * @param text
+     * @return
+     */
+    public boolean existSensitiveWord(String text) {
+        return matches(text).length > 0;
+    }
+
+    /**
+     * 使用给定的字符替换字符串中的敏感词
+     *
+     * @param text       进行敏感词替换的字符串
+     * @param shieldChar 替换后的字符
+     * @return
+     */
+    public String shieldSensitiveWord(String text, char shieldChar) {
+        int[] matches = matches(text);
+        if (matches.length == 0) {
+            return text;
+        }
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < matches.length; i += 2) {
+            Arrays.fill(chars, matches[i], matches[i + 1], shieldChar);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 删除字符串中的敏感词
+     *
+     * @param text
+     * @return
+     */
+    public String deleteSensitiveWord(String text) {
+        int[] matches = matches(text);
+        if (matches.length == 0) {
+            return text;
+        }
+        StringBuilder builder = new StringBuilder(text.length());
+        int position = 0;
+        for (int i = 0; i < matches.length; i += 2) {
+            builder.append(text, position, matches[i]);
+            position = matches[i + 1];
+        }
+        return builder.append(text, position, text.length()).toString();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 返回缓存当前占用内存的估算值
+     *
+     * @return
+     */
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * 清空缓存,计数器不清零
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 返回文本中所有敏感词的[start, end)位置,依次保存在数组中
+     */
+    private int[] matches(String text) {
+        DFASensitiveWordFilter filter = filters.get();
+        if (text.length() > maxTextLength) {
+            return scan(filter, text);
+        }
+        if (snapshot != filter) {
+            //过滤器已更新,旧快照的缓存全部失效
+            snapshot = filter;
+            invalidateAll();
+        }
+        int hash = spread(text.hashCode());
+        sketch.increment(hash);
+        Segment segment = segments[hash & (SEGMENTS - 1)];
+        int[] matches = segment.get(text, filter);
+        if (matches != null) {
+            hits.increment();
+            return matches;
+        }
+        misses.increment();
+        matches = scan(filter, text);
+        segment.put(text, hash, new Entry(filter, matches));
+        return matches;
+    }
+
+    private static int[] scan(DFASensitiveWordFilter filter, String text) {
+        int[][] matches = {NO_MATCH};
+        int[] count = new int[1];
+        filter.scan(text.toCharArray(), 0, text.length(), (start, end, wordId) -> {
+            if (count[0] == matches[0].length) {
+                matches[0] = Arrays.copyOf(matches[0], Math.max(4, count[0] * 2));
+            }
+            matches[0][count[0]++] = start;
+            matches[0][count[0]++] = end;
+            return true;
+        });
+        return count[0] == matches[0].length ? matches[0] : Arrays.copyOf(matches[0], count[0]);
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry {
+        private final DFASensitiveWordFilter filter;
+        private final int[] matches;
+
+        private Entry(DFASensitiveWordFilter filter, int[] matches) {
+            this.filter = filter;
+            this.matches = matches;
+        }
+    }
+
+    /**
+     * 一段缓存,按访问顺序排列,队首为最久未访问的缓存
+     */
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private volatile long bytes;
+
+        private int[] get(String text, DFASensitiveWordFilter filter) {
+            lock.lock();
+            try {
+                Entry entry = entries.get(text);
+                //快照切换时可能有旧快照计算的结果在清空之后才放入
+                return entry != null && entry.filter == filter ? entry.matches : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void put(String text, int hash, Entry entry) {
+            long size = weight(text, entry);
+            if (size > segmentBudget) {
+                return;
+            }
+            lock.lock();
+            try {
+                Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+                while (bytes + size > segmentBudget && iterator.hasNext()) {
+                    Map.Entry<String, Entry> victim = iterator.next();
+                    if (victim.getValue().filter == entry.filter
+                            && sketch.frequency(spread(victim.getKey().hashCode())) >= sketch.frequency(hash)) {
+                        //新文本的访问频率不高于被淘汰的缓存,不放入缓存
+                        return;
+                    }
+                    iterator.remove();
+                    bytes -= weight(victim.getKey(), victim.getValue());
+                    evictions.increment();
+                }
+                Entry previous = entries.put(text, entry);
+                bytes += size - (previous == null ? 0 : weight(text, previous));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void clear() {
+            lock.lock();
+            try {
+                entries.clear();
+                bytes = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long weight(String text, Entry entry) {
+            return ENTRY_OVERHEAD + 2L * text.length() + 4L * entry.matches.length;
+        }
+    }
+
+    /**
+     * 4位计数器的Count-Min Sketch,每个long保存16个计数器;累计增加次数达到上限后所有计数器减半,使频率反映最近的访问<br>
+     * 计数器的更新不加锁,并发时偶尔丢失的计数只影响淘汰的准确度
+     */
+    private static final class FrequencySketch {
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(long expectedEntries) {
+            int size = Integer.highestOneBit((int) Math.max(64, Math.min(expectedEntries, 1 << 24)) - 1) << 1;
+            table = new long[size];
+            sampleSize = 10 * size;
+        }
+
+        private void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(index(hash, i), offset(hash, i));
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                frequency = Math.min(frequency, (int) ((table[index(hash, i)] >>> offset(hash, i)) & 0xFL));
+            }
+            return frequency;
+        }
+
+        private boolean incrementAt(int index, int offset) {
+            long mask = 0xFL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private int index(int hash, int i) {
+            int h = (hash + i) * (0x2545F491 + (i << 1));
+            return (h ^ (h >>> 17)) & (table.length - 1);
+        }
+
+        private int offset(int hash, int i) {
+            return ((hash >>> (i << 3)) & 0xF) << 2;
+        }
+
+        private void reset() {
+            additions = 0;
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+        }
+    }
+}
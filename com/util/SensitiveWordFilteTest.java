@@ -1,9 +1,42 @@
 package com.util;
 
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.Uninterruptibles;
 import jersey.repackaged.com.google.common.collect.Lists;
+import org.junit.Assert;
 import org.junit.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * @Author zhangweixin
@@ -19,4 +52,739 @@ public class SensitiveWordFilteTest {
         System.out.println("您好");
     }
 
+    @Test
+    public void testAhoCorasickMatch() throws IOException {
+        List<String> words = Lists.newArrayList("日本", "日本人", "温家宝", "韩国棒子", "韩国萨德", "aaab", "ab");
+        DFASensitiveWordFilter.setSensitiveWords(words);
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+
+        Assert.assertTrue(filter.existSensitiveWord("韩国韩国萨德"));
+        Assert.assertFalse(filter.existSensitiveWord("韩国棒"));
+        Assert.assertEquals(Lists.newArrayList("韩国萨德", "日本"), filter.findSensitiveWords("韩国韩国萨德日本人"));
+        Assert.assertEquals("韩国人", filter.deleteSensitiveWord("韩国韩国萨德日本人"));
+        Assert.assertEquals("韩国******人", filter.shieldSensitiveWord("韩国韩国萨德日本人", '*'));
+        //失败后沿失败指针转移,不回溯文本也能找到后缀中的敏感词
+        Assert.assertEquals(Lists.newArrayList("aaab"), filter.findSensitiveWords("aaaaaab"));
+        Assert.assertEquals("aaaa", filter.deleteSensitiveWord("aaaaaaab"));
+    }
+
+    @Test
+    public void testCompiledDFA() {
+        List<String> words = Lists.newArrayList();
+        for (char c = 'A'; c < 'A' + 100; c++) {
+            words.add(c + "敏感");
+        }
+        words.add("敏感词");
+        CompiledDFA dfa = CompiledDFA.build(words);
+        Assert.assertEquals(3, dfa.maxDepth());
+
+        int state = CompiledDFA.ROOT;
+        for (char c : "Z敏感词".toCharArray()) {
+            state = dfa.next(state, c);
+        }
+        Assert.assertEquals(3, dfa.matchLength(state));
+        Assert.assertEquals(CompiledDFA.ROOT, dfa.next(state, '?'));
+    }
+
+    @Test
+    public void testReload() throws IOException {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本"));
+        DFASensitiveWordFilter old = DFASensitiveWordFilter.reload().join();
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("韩国"));
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+
+        Assert.assertSame(filter, DFASensitiveWordFilter.getInstance());
+        //旧快照不受重建影响
+        Assert.assertEquals("**韩国", old.shieldSensitiveWord("日本韩国", '*'));
+        Assert.assertEquals("日本**", filter.shieldSensitiveWord("日本韩国", '*'));
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws IOException {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本", "日本人", "本人"));
+        DFASensitiveWordFilter.reload().join();
+
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.addWord("韩国");
+        Assert.assertEquals("**人**", filter.shieldSensitiveWord("日本人韩国", '*'));
+        filter = DFASensitiveWordFilter.removeWord("日本");
+        //删除日本后同一位置结束的敏感词中取最长的日本人
+        Assert.assertEquals("*****", filter.shieldSensitiveWord("日本人韩国", '*'));
+        filter = DFASensitiveWordFilter.removeWord("日本人");
+        Assert.assertEquals("日****", filter.shieldSensitiveWord("日本人韩国", '*'));
+        filter = DFASensitiveWordFilter.removeWord("韩国");
+        filter = DFASensitiveWordFilter.addWord("日本");
+        Assert.assertEquals(Lists.newArrayList("日本", "本人"), filter.getWords());
+
+        //重建时保留增量修改
+        filter = DFASensitiveWordFilter.reload().join();
+        Assert.assertEquals(Lists.newArrayList("日本", "本人"), filter.getWords());
+        Assert.assertEquals("**人韩国", filter.shieldSensitiveWord("日本人韩国", '*'));
+    }
+
+    @Test
+    public void testStreamFilter() throws IOException {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本", "韩国萨德"));
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("韩国萨德,日本人;");
+        }
+
+        StringWriter writer = new StringWriter();
+        filter.shieldSensitiveWord(new StringReader(text.toString()), writer, '*');
+        Assert.assertEquals(filter.shieldSensitiveWord(text.toString(), '*'), writer.toString());
+
+        writer = new StringWriter();
+        filter.deleteSensitiveWord(new StringReader(text.toString()), writer);
+        Assert.assertEquals(filter.deleteSensitiveWord(text.toString()), writer.toString());
+
+        ByteArrayInputStream in = new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.shieldSensitiveWord(Channels.newChannel(in), Channels.newChannel(out), StandardCharsets.UTF_8, '*');
+        Assert.assertEquals(filter.shieldSensitiveWord(text.toString(), '*'), new String(out.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertTrue(filter.existSensitiveWord(new StringReader(text.toString())));
+    }
+
+    @Test
+    public void testScanListener() {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本", "日本人", "温家宝"));
+        DFASensitiveWordFilter.reload().join();
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.addWord("韩国");
+        char[] chars = "日本人和韩国,温家宝".toCharArray();
+        StringBuilder result = new StringBuilder();
+        filter.scan(chars, 1, chars.length, (start, end, wordId) -> {
+            result.append(start).append(',').append(end).append(',').append(filter.getWord(wordId)).append(';');
+            return true;
+        });
+        Assert.assertEquals("4,6,韩国;7,10,温家宝;", result.toString());
+    }
+
+    @Test
+    public void testUtf8Filter() {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本", "温家宝", "ab"));
+        DFASensitiveWordFilter.reload().join();
+        DFASensitiveWordFilter.removeWord("ab");
+        Utf8SensitiveWordFilter filter = DFASensitiveWordFilter.addWord("韩国").utf8();
+        byte[] bytes = "ab韩国,日本人".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+
+        StringBuilder result = new StringBuilder();
+        filter.scan(buffer, (start, end, wordId) -> {
+            result.append(start).append(',').append(end).append(',').append(filter.getWord(wordId)).append(';');
+            return true;
+        });
+        Assert.assertEquals("2,8,韩国;9,15,日本;", result.toString());
+        Assert.assertFalse(filter.existSensitiveWord(bytes, 0, 7));
+        Assert.assertTrue(filter.existSensitiveWord(ByteBuffer.wrap(bytes)));
+
+        //堆内缓冲区有数组偏移时回调的位置仍然是缓冲区中的下标
+        ByteBuffer slice = ByteBuffer.wrap(bytes, 2, bytes.length - 2).slice();
+        StringBuilder sliced = new StringBuilder();
+        filter.scan(slice, (start, end, wordId) -> {
+            sliced.append(start).append(',').append(end).append(';');
+            return true;
+        });
+        Assert.assertEquals("0,6;7,13;", sliced.toString());
+
+        //字节匹配无法应用归一化规则和模式,不能返回与字符匹配不一致的结果
+        for (DFASensitiveWordFilter unsupported : Arrays.asList(
+                DFASensitiveWordFilter.build(Lists.newArrayList("abc"), new CharNormalizer(true, true, null, null)),
+                DFASensitiveWordFilter.build(Lists.newArrayList("abc"), Lists.newArrayList("a[0-9]"), null))) {
+            try {
+                unsupported.utf8();
+                Assert.fail("utf8 must reject normalizer and patterns");
+            } catch (IllegalStateException e) {
+                Assert.assertTrue(unsupported.existSensitiveWord("ABC") || unsupported.existSensitiveWord("a1"));
+            }
+        }
+    }
+
+    @Test
+    public void testMappedImage() throws IOException {
+        Path image = Files.createTempFile("sensitive-words", ".dfa");
+        try {
+            DFASensitiveWordFilter.compileImage(Lists.newArrayList("日本", "日本人", "温家宝"), image);
+            DFASensitiveWordFilter filter = DFASensitiveWordFilter.loadImage(image);
+            Assert.assertSame(filter, DFASensitiveWordFilter.getInstance());
+            Assert.assertEquals("**人和***", filter.shieldSensitiveWord("日本人和温家宝", '*'));
+            Assert.assertEquals("温家宝", filter.getWord(2));
+
+            byte[] bytes = Files.readAllBytes(image);
+            bytes[bytes.length - 1] ^= 1;
+            Files.write(image, bytes);
+            try {
+                DFASensitiveWordFilter.loadImage(image);
+                Assert.fail("corrupted image must not be loaded");
+            } catch (IOException e) {
+                Assert.assertSame(filter, DFASensitiveWordFilter.getInstance());
+            }
+
+            //重建线程被阻塞时加载镜像不等待重建,正在进行和排队的重建都不会覆盖之后发布的镜像
+            DFASensitiveWordFilter.compileImage(Lists.newArrayList("日本", "日本人", "温家宝"), image);
+            CountDownLatch building = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            SensitiveWordMetrics metrics = new SensitiveWordMetrics();
+            metrics.addListener(new MetricsListener() {
+                @Override
+                public void onBuild(long nanos, int stateCount, long estimatedBytes) {
+                    if (Thread.currentThread().getName().startsWith("sensitive-word-reload")) {
+                        building.countDown();
+                        Uninterruptibles.awaitUninterruptibly(release);
+                    }
+                }
+            });
+            DFASensitiveWordFilter.setMetrics(metrics);
+            try {
+                DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("韩国"));
+                CompletableFuture<DFASensitiveWordFilter> running = DFASensitiveWordFilter.reload();
+                Uninterruptibles.awaitUninterruptibly(building);
+                DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("美国"));
+                CompletableFuture<DFASensitiveWordFilter> queued = DFASensitiveWordFilter.reload();
+                filter = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return DFASensitiveWordFilter.loadImage(image);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }).get(10, TimeUnit.SECONDS);
+                Assert.assertSame(filter, DFASensitiveWordFilter.getInstance());
+                release.countDown();
+                Assert.assertSame(filter, running.join());
+                Assert.assertSame(filter, queued.join());
+                Assert.assertSame(filter, DFASensitiveWordFilter.getInstance());
+                Assert.assertEquals(Lists.newArrayList("日本", "日本人", "温家宝"), DFASensitiveWordFilter.getSensitiveWords());
+            } finally {
+                release.countDown();
+                DFASensitiveWordFilter.setMetrics(null);
+            }
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new AssertionError("loadImage must not wait for the reload thread", e);
+        } finally {
+            Files.deleteIfExists(image);
+        }
+    }
+
+    @Test
+    public void testNormalizer() throws IOException {
+        DFASensitiveWordFilter.setNormalizer(new CharNormalizer(true, true, "* ", Collections.singletonMap('曰', '日')));
+        try {
+            DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本", "FaLun"));
+            DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+            Assert.assertEquals(Lists.newArrayList("日本", "日本", "FaLun"), filter.findSensitiveWords("日*本,曰 本人,ＦＡ＊ｌｕｎ"));
+            Assert.assertEquals("***,***人,*****", filter.shieldSensitiveWord("日*本,曰 本人,ＦＡｌｕｎ", '*'));
+            Assert.assertEquals("* ,人", filter.deleteSensitiveWord("* 日 * 本,人"));
+
+            StringWriter writer = new StringWriter();
+            filter.deleteSensitiveWord(new StringReader("* 日 * 本,人"), writer);
+            Assert.assertEquals("* ,人", writer.toString());
+
+            //增量敏感词的首字符按归一化规则展开为所有原始字符
+            filter = filter.withWords(Lists.newArrayList("Ｔaiwan", "曰韩"));
+            Assert.assertEquals(Lists.newArrayList("Ｔaiwan", "Ｔaiwan", "Ｔaiwan", "曰韩", "曰韩"),
+                    filter.findSensitiveWords("taiwan,TAIWAN,ｔａｉｗａｎ,日韩,曰 韩"));
+            char[] sources = new CharNormalizer(true, true, null, null).sources('a');
+            Arrays.sort(sources);
+            Assert.assertEquals("AaＡａ", new String(sources));
+        } finally {
+            DFASensitiveWordFilter.setNormalizer(null);
+        }
+    }
+
+    @Test
+    public void testStreamSkipRunBounded() throws IOException {
+        DFASensitiveWordFilter.setNormalizer(new CharNormalizer(false, false, "*", null, 3));
+        try {
+            DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本"));
+            DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+            Assert.assertEquals("*****", filter.shieldSensitiveWord("日***本", '*'));
+            Assert.assertEquals("日****本", filter.shieldSensitiveWord("日****本", '*'));
+
+            //敏感词首字符之后是很长的跳过字符串,已读入但未写出的字符数不能随之增长
+            StringBuilder builder = new StringBuilder("日");
+            for (int i = 0; i < 1 << 20; i++) {
+                builder.append('*');
+            }
+            String text = builder.append("本日*本").toString();
+            StringWriter writer = new StringWriter();
+            int bound = filter.maxWordLength() * (3 + 1) + 2 * 8192;
+            Reader reader = new StringReader(text) {
+                private int position;
+
+                @Override
+                public int read(char[] cbuf, int off, int len) throws IOException {
+                    Assert.assertTrue(position - writer.getBuffer().length() <= bound);
+                    int read = super.read(cbuf, off, len);
+                    position += Math.max(read, 0);
+                    return read;
+                }
+            };
+            filter.shieldSensitiveWord(reader, writer, '#');
+            Assert.assertEquals(filter.shieldSensitiveWord(text, '#'), writer.toString());
+            Assert.assertTrue(writer.toString().endsWith("本###"));
+        } finally {
+            DFASensitiveWordFilter.setNormalizer(null);
+        }
+    }
+
+    @Test
+    public void testBatchFilter() throws IOException {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本", "温家宝"));
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+
+        //敏感词跨越分段边界
+        char[] chars = new char[(1 << 17) + 100];
+        Arrays.fill(chars, '人');
+        chars[(1 << 16) - 1] = '日';
+        chars[1 << 16] = '本';
+        "温家宝".getChars(0, 3, chars, chars.length - 3);
+        String longText = new String(chars);
+        List<String> texts = Lists.newArrayList("日本人", "没有敏感词", longText, "");
+        for (int i = 0; i < 1000; i++) {
+            texts.add(i + "温家宝" + i);
+        }
+
+        boolean[] exist = filter.existSensitiveWords(texts);
+        List<String> deleted = filter.deleteSensitiveWords(texts);
+        List<String> shielded = filter.shieldSensitiveWords(texts, '*');
+        for (int i = 0; i < texts.size(); i++) {
+            Assert.assertEquals(filter.existSensitiveWord(texts.get(i)), exist[i]);
+            Assert.assertEquals(filter.deleteSensitiveWord(texts.get(i)), deleted.get(i));
+            Assert.assertEquals(filter.shieldSensitiveWord(texts.get(i), '*'), shielded.get(i));
+        }
+        Assert.assertEquals(longText.length() - 5, deleted.get(2).length());
+    }
+
+    @Test
+    public void testBatchFilterOverlapAtBoundary() throws IOException {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本", "本人日本", "ab", "baab"));
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+
+        //顺序扫描在回退区间内匹配日本后重新开始,找到后一个日本;从回退位置开始的分段扫描会找到与之重叠的本人日本
+        int from = 1 << 16;
+        char[] chars = new char[(1 << 17) + 10];
+        Arrays.fill(chars, '-');
+        "日本人日本".getChars(0, 5, chars, from - 4);
+        List<String> texts = Lists.newArrayList(new String(chars));
+        Random random = new Random(7);
+        String alphabet = "日本人ab";
+        for (int n = 0; n < 8; n++) {
+            char[] text = new char[(1 << 17) + random.nextInt(1000)];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            texts.add(new String(text));
+        }
+
+        List<String> deleted = filter.deleteSensitiveWords(texts);
+        List<String> shielded = filter.shieldSensitiveWords(texts, '*');
+        for (int i = 0; i < texts.size(); i++) {
+            Assert.assertEquals(filter.shieldSensitiveWord(texts.get(i), '*'), shielded.get(i));
+            Assert.assertEquals(filter.deleteSensitiveWord(texts.get(i)), deleted.get(i));
+        }
+        Assert.assertEquals('人', shielded.get(0).charAt(from - 2));
+    }
+
+    @Test
+    public void testRegistry() throws IOException {
+        SensitiveWordRegistry registry = new SensitiveWordRegistry();
+        DFASensitiveWordFilter base = registry.register("cn", Lists.newArrayList("日本", "温家宝"));
+        DFASensitiveWordFilter tenant = registry.registerLayer("tenant", "cn", Lists.newArrayList("韩国", "日本人"));
+        Assert.assertEquals("**人韩国", base.shieldSensitiveWord("日本人韩国", '*'));
+        Assert.assertEquals("**人**", tenant.shieldSensitiveWord("日本人韩国", '*'));
+
+        //分层词库的修改不影响基础词库
+        tenant = registry.removeWord("tenant", "日本");
+        Assert.assertEquals("日本**", tenant.shieldSensitiveWord("日本韩国", '*'));
+        Assert.assertEquals("**韩国", registry.get("cn").shieldSensitiveWord("日本韩国", '*'));
+
+        //基础词库更新后分层词库重新叠加
+        registry.addWord("cn", "美国");
+        Assert.assertEquals("日本****", registry.get("tenant").shieldSensitiveWord("日本韩国美国", '*'));
+        registry.register("cn", Lists.newArrayList("台湾"));
+        Assert.assertEquals("日本****", registry.get("tenant").shieldSensitiveWord("日本韩国台湾", '*'));
+        Assert.assertEquals(Lists.newArrayList("台湾", "韩国", "日本人"), registry.get("tenant").getWords());
+
+        try {
+            registry.unregister("cn");
+            Assert.fail("base dictionary in use must not be removed");
+        } catch (IllegalStateException e) {
+            registry.unregister("tenant");
+            registry.unregister("cn");
+        }
+        Assert.assertTrue(registry.names().isEmpty());
+
+        //并发注册分层词库和删除基础词库,不会留下基础词库已删除的分层词库
+        for (int i = 0; i < 200; i++) {
+            registry.register("cn", Lists.newArrayList("日本"));
+            CompletableFuture<Void> layer = CompletableFuture.runAsync(() -> {
+                try {
+                    registry.registerLayer("tenant", "cn", Lists.newArrayList("韩国"));
+                } catch (IllegalArgumentException e) {
+                    //基础词库已删除
+                }
+            });
+            try {
+                registry.unregister("cn");
+            } catch (IllegalStateException e) {
+                //分层词库已注册
+            }
+            layer.join();
+            Assert.assertTrue(registry.get("tenant") == null || registry.get("cn") != null);
+            if (registry.get("tenant") != null) {
+                registry.unregister("tenant");
+            }
+            if (registry.get("cn") != null) {
+                registry.unregister("cn");
+            }
+        }
+    }
+
+    @Test
+    public void testVerdictCache() throws IOException {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本"));
+        DFASensitiveWordFilter.reload().join();
+        SensitiveWordCache cache = new SensitiveWordCache(1 << 20);
+
+        Assert.assertTrue(cache.existSensitiveWord("日本人"));
+        Assert.assertEquals("**人", cache.shieldSensitiveWord("日本人", '*'));
+        Assert.assertEquals("人", cache.deleteSensitiveWord("日本人"));
+        Assert.assertEquals("你好", cache.shieldSensitiveWord("你好", '*'));
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(2, cache.getHitCount());
+
+        //过滤器更新后缓存失效
+        DFASensitiveWordFilter.addWord("你好");
+        Assert.assertEquals("**", cache.shieldSensitiveWord("你好", '*'));
+        Assert.assertEquals(3, cache.getMissCount());
+
+        //超出内存预算时高频文本不会被只出现一次的文本淘汰
+        SensitiveWordCache small = new SensitiveWordCache(DFASensitiveWordFilter::getInstance, 16 * 200, 256);
+        for (int i = 0; i < 100; i++) {
+            small.existSensitiveWord("hot" + (i & 3));
+        }
+        for (int i = 0; i < 1000; i++) {
+            small.existSensitiveWord("cold" + i);
+        }
+        long misses = small.getMissCount();
+        small.existSensitiveWord("hot1");
+        Assert.assertEquals(misses, small.getMissCount());
+        Assert.assertTrue(small.estimatedBytes() <= 16 * 200);
+    }
+
+    @Test
+    public void testStartCharSkip() throws IOException {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("本人", "日本"));
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'a');
+        String text = new String(chars) + "日本人" + new String(chars);
+        Assert.assertFalse(filter.existSensitiveWord(new String(chars)));
+        Assert.assertEquals(Lists.newArrayList("日本"), filter.findSensitiveWords(text));
+
+        //增量添加的敏感词首字符同样参与判断
+        filter = DFASensitiveWordFilter.addWord("aaa");
+        Assert.assertTrue(filter.existSensitiveWord(new String(chars)));
+        StringWriter writer = new StringWriter();
+        filter.deleteSensitiveWord(new StringReader(text), writer);
+        Assert.assertEquals("aa人aa", writer.toString());
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        SensitiveWordMetrics metrics = new SensitiveWordMetrics();
+        long[] scanned = new long[1];
+        metrics.addListener(new MetricsListener() {
+            @Override
+            public void onScan(long chars, long nanos) {
+                scanned[0] += chars;
+            }
+        });
+        DFASensitiveWordFilter.setMetrics(metrics);
+        try {
+            DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本", "温家宝"));
+            DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+            Assert.assertEquals(1, metrics.getBuildCount());
+            Assert.assertEquals(filter.stateCount(), metrics.getStateCount());
+            Assert.assertEquals(filter.estimatedBytes(), metrics.getEstimatedBytes());
+
+            filter.shieldSensitiveWord("日本人和日本,温家宝", '*');
+            filter.existSensitiveWord("你好");
+            Assert.assertEquals(2, metrics.getScanCount());
+            Assert.assertEquals(12, metrics.getCharCount());
+            Assert.assertEquals(12, scanned[0]);
+            Assert.assertEquals(3, metrics.getHitCount());
+            Assert.assertEquals(Long.valueOf(2), metrics.getWordHitCounts().get("日本"));
+            Assert.assertEquals("日本=2", metrics.getTopHitWords()[0]);
+
+            ObjectName name = metrics.register("test");
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                Assert.assertEquals(3L, server.getAttribute(name, "HitCount"));
+                server.invoke(name, "reset", null, null);
+                Assert.assertEquals(0, metrics.getScanCount());
+            } finally {
+                metrics.unregister("test");
+            }
+        } finally {
+            DFASensitiveWordFilter.setMetrics(null);
+        }
+    }
+
+    @Test
+    public void testMinimizedDFA() throws IOException {
+        List<String> words = Lists.newArrayList("日本", "日本人", "本人", "aaab", "ab", "日本");
+        for (int i = 0; i < 2000; i++) {
+            words.add(i + "法轮功");
+            words.add("法轮功" + i + "大法");
+        }
+        String text = "aaaaaab日本人和12法轮功,法轮功7大法7大法";
+        DFASensitiveWordFilter.setMinimized(true);
+        try {
+            //全局设置只作用于发布的过滤器,独立构建的过滤器由参数决定
+            DFASensitiveWordFilter filter = DFASensitiveWordFilter.build(words, null);
+            DFASensitiveWordFilter minimized = DFASensitiveWordFilter.build(words, Collections.emptyList(), null, true);
+            Assert.assertTrue(minimized.stateCount() * 3 < filter.stateCount());
+            Assert.assertEquals(minimized.stateCount(),
+                    new SensitiveWordRegistry(null, true).register("cn", words).stateCount());
+            Assert.assertEquals(filter.findSensitiveWords(text), minimized.findSensitiveWords(text));
+            Assert.assertEquals(filter.shieldSensitiveWord(text, '*'), minimized.shieldSensitiveWord(text, '*'));
+            //重复的敏感词使用第一次出现的编号
+            MinimizedDFA dawg = MinimizedDFA.build(words);
+            Assert.assertEquals(0, dawg.wordId(dawg.find("日本")));
+
+            //删除的敏感词在同一位置结束的敏感词中跳过
+            minimized = minimized.withoutWords(Lists.newArrayList("日本人", "aaab")).withWords(Lists.newArrayList("韩国"));
+            filter = filter.withoutWords(Lists.newArrayList("日本人", "aaab")).withWords(Lists.newArrayList("韩国"));
+            text += "韩国日本人";
+            Assert.assertEquals(filter.findSensitiveWords(text), minimized.findSensitiveWords(text));
+            StringWriter writer = new StringWriter();
+            minimized.deleteSensitiveWord(new StringReader(text), writer);
+            Assert.assertEquals(filter.deleteSensitiveWord(text), writer.toString());
+        } finally {
+            DFASensitiveWordFilter.setMinimized(false);
+        }
+    }
+
+    @Test
+    public void testShieldInPlace() throws IOException {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本", "温家宝"));
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+        char[] chars = "日本人和温家宝,日本".toCharArray();
+        Assert.assertEquals(3, filter.shieldSensitiveWordInPlace(chars, '*'));
+        Assert.assertEquals("**人和***,**", new String(chars));
+
+        chars = "日本人和温家宝".toCharArray();
+        Assert.assertEquals(1, filter.shieldSensitiveWordInPlace(chars, 1, chars.length, '*'));
+        Assert.assertEquals("日本人和***", new String(chars));
+
+        CharBuffer buffer = ByteBuffer.allocateDirect(32).asCharBuffer();
+        buffer.put("你好,温家宝日本").flip();
+        buffer.position(3);
+        Assert.assertEquals(2, filter.shieldSensitiveWordInPlace(buffer, '*'));
+        Assert.assertEquals(3, buffer.position());
+        buffer.rewind();
+        Assert.assertEquals("你好,*****", buffer.toString());
+        CharBuffer wrapped = CharBuffer.wrap("x日本x".toCharArray(), 1, 2).slice();
+        Assert.assertEquals(1, filter.shieldSensitiveWordInPlace(wrapped, '*'));
+        Assert.assertEquals("**", wrapped.toString());
+
+        //没有底层数组的缓冲区跳过干净文本后与字符数组的结果相同
+        String text = Strings.repeat("abc日温,", 50) + "日本温家宝" + Strings.repeat("xyz", 40) + "温家宝日本";
+        chars = text.toCharArray();
+        buffer = ByteBuffer.allocateDirect(text.length() * 2).asCharBuffer();
+        buffer.put(text).flip();
+        Assert.assertEquals(filter.shieldSensitiveWordInPlace(chars, '*'), filter.shieldSensitiveWordInPlace(buffer, '*'));
+        Assert.assertEquals(new String(chars), buffer.toString());
+    }
+
+    @Test
+    public void testSensitivePatterns() throws IOException {
+        List<String> patterns = Lists.newArrayList("法[0-9]轮", "法.{0,2}轮功", "a[^b]?c", "\\.x");
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.build(Lists.newArrayList("日本", "法轮功"), patterns, null);
+        Assert.assertEquals(Lists.newArrayList("法[0-9]轮", "日本", "法.{0,2}轮功", "a[^b]?c", "\\.x"),
+                filter.findSensitiveWords("法5轮,日本,法*-轮功,abc,axc,\\.x"));
+        //同一位置结束的敏感词和模式取最长的一个
+        Assert.assertEquals("**,法x-y轮功,***,日****", filter.shieldSensitiveWord("ac,法x-y轮功,法轮功,日法a轮功", '*'));
+        Assert.assertFalse(filter.existSensitiveWord("法a轮,abbc"));
+
+        //跨越读取边界的模式同样会被删除
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            text.append("法").append(i % 10).append("轮;法..轮功;");
+        }
+        StringWriter writer = new StringWriter();
+        filter.deleteSensitiveWord(new StringReader(text.toString()), writer);
+        Assert.assertEquals(filter.deleteSensitiveWord(text.toString()), writer.toString());
+        Assert.assertEquals(";;", writer.toString().substring(0, 2));
+
+        try {
+            DFASensitiveWordFilter.setSensitivePatterns(Lists.newArrayList("a{1,}"));
+            Assert.fail("unbounded repetition must be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(filter.getPatterns().contains("法[0-9]轮"));
+        }
+
+        //首字符索引:可选的开头元素、取反的字符类,同一位置结束且长度相同时取编号最小的模式
+        SensitivePatterns compiled = SensitivePatterns.compile(Lists.newArrayList("[x-z]y", "xy", "q?[^a-y]w", "b{2}"), null);
+        SensitivePatterns.Cursor cursor = compiled.new Cursor();
+        StringBuilder result = new StringBuilder();
+        for (char c : "xy,qzw,zw,abbb,aw".toCharArray()) {
+            int length = cursor.next(c);
+            if (length > 0) {
+                result.append(compiled.getPattern(cursor.patternId())).append(':').append(length).append(';');
+            }
+        }
+        Assert.assertEquals("[x-z]y:2;q?[^a-y]w:3;q?[^a-y]w:2;b{2}:2;", result.toString());
+        Assert.assertTrue(cursor.isIdle());
+
+        //开启大小写转换时字符类按原始字符匹配,普通字符按归一化之后的字符匹配
+        DFASensitiveWordFilter folded = DFASensitiveWordFilter.build(Collections.emptyList(),
+                Lists.newArrayList("[A-Z]{2}[0-9]", "q[^a-z]"), new CharNormalizer(true, true, null, null));
+        Assert.assertEquals("***,ab1,ＡＢ1,qb,**,**", folded.shieldSensitiveWord("AB1,ab1,ＡＢ1,qb,QB,ｑB", '*'));
+    }
+
+    @Test
+    public void testParallelBuild() {
+        List<String> words = Lists.newArrayList("日本", "日本人", "本人", null, "", "aaab", "ab", "日本");
+        Random random = new Random(42);
+        for (int i = 0; i < 50000; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int j = random.nextInt(6); j >= 0; j--) {
+                word.append((char) ('a' + random.nextInt(20)));
+            }
+            words.add(word.toString());
+        }
+        CompiledDFA expected = CompiledDFA.build(words.subList(0, 100));
+        CompiledDFA actual = CompiledDFA.build(words.subList(0, 100), Runnable::run);
+        assertSameDFA(expected, actual);
+
+        //逐个插入构建的结果与并行构建的结果完全相同
+        DFANode root = new DFANode(null);
+        root.setFailure(root);
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            if (word == null || word.isEmpty()) {
+                continue;
+            }
+            DFANode state = root;
+            for (char c : word.toCharArray()) {
+                state.getNextStates().insert(c);
+                DFANode next = state.findNextState(c);
+                next.setDepth(state.getDepth() + 1);
+                state = next;
+            }
+            if (!state.isIntactWord()) {
+                state.setIntactWord(true);
+                state.setWordId(i);
+            }
+        }
+        assertSameDFA(CompiledDFA.compile(root), CompiledDFA.build(words, ForkJoinPool.commonPool()));
+        Assert.assertEquals(1, CompiledDFA.build(Collections.emptyList(), ForkJoinPool.commonPool()).stateCount());
+    }
+
+    @Test
+    public void testAsyncService() throws Exception {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本", "温家宝"));
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            SensitiveWordService closed;
+            try (SensitiveWordService service = new SensitiveWordService(() -> filter, executor, 2, 16, 1, TimeUnit.MILLISECONDS, 64)) {
+                List<CompletableFuture<Boolean>> exist = Lists.newArrayList();
+                List<CompletableFuture<String>> shielded = Lists.newArrayList();
+                for (int i = 0; i < 1000; i++) {
+                    exist.add(service.existSensitiveWord(i % 2 == 0 ? i + "日本" : String.valueOf(i)));
+                    shielded.add(service.shieldSensitiveWord(i + "温家宝", '*'));
+                }
+                for (int i = 0; i < 1000; i++) {
+                    Assert.assertEquals(i % 2 == 0, exist.get(i).get(5, TimeUnit.SECONDS));
+                    Assert.assertEquals(i + "***", shielded.get(i).get(5, TimeUnit.SECONDS));
+                }
+                Assert.assertEquals("人", service.deleteSensitiveWord("日本人").get(5, TimeUnit.SECONDS));
+                closed = service;
+            }
+            try {
+                closed.existSensitiveWord("日本").join();
+                Assert.fail();
+            } catch (CompletionException e) {
+                Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncServiceCloseWhileSaturated() throws Exception {
+        DFASensitiveWordFilter.setSensitiveWords(Lists.newArrayList("日本"));
+        DFASensitiveWordFilter filter = DFASensitiveWordFilter.reload().join();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        //第一批阻塞在取过滤器上,占满唯一的执行许可,分发线程取出下一批后等待许可
+        Supplier<DFASensitiveWordFilter> filters = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return filter;
+        };
+        ExecutorService executor = Executors.newCachedThreadPool();
+        List<CompletableFuture<Boolean>> futures = Lists.newArrayList();
+        try {
+            try (SensitiveWordService service = new SensitiveWordService(filters, executor, 1, 4, 0, TimeUnit.MILLISECONDS, 64)) {
+                futures.add(service.existSensitiveWord("日本"));
+                Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+                for (int i = 0; i < 32; i++) {
+                    futures.add(service.existSensitiveWord(i + "日本"));
+                }
+                //等待分发线程把请求取出队列
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (service.getQueueSize() > 28 && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+            }
+            //服务关闭后才放行正在执行的批次
+            release.countDown();
+            Assert.assertTrue(futures.get(0).get(5, TimeUnit.SECONDS));
+            for (CompletableFuture<Boolean> future : futures.subList(1, futures.size())) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    Assert.fail();
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+                }
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        //取过滤器失败时整批请求以该异常结束
+        try (SensitiveWordService service = new SensitiveWordService(() -> {
+            throw new IllegalStateException("no filter");
+        }, ForkJoinPool.commonPool(), 1, 4, 0, TimeUnit.MILLISECONDS, 64)) {
+            try {
+                service.existSensitiveWord("日本").get(5, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    private static void assertSameDFA(CompiledDFA expected, CompiledDFA actual) {
+        Assert.assertArrayEquals(expected.childStarts(), actual.childStarts());
+        Assert.assertArrayEquals(expected.childChars(), actual.childChars());
+        Assert.assertEquals(expected.maxDepth(), actual.maxDepth());
+        for (int i = 0; i < expected.stateCount(); i++) {
+            Assert.assertEquals(expected.failure(i), actual.failure(i));
+            Assert.assertEquals(expected.output(i), actual.output(i));
+            Assert.assertEquals(expected.wordId(i), actual.wordId(i));
+            Assert.assertEquals(expected.matchLength(i), actual.matchLength(i));
+        }
+    }
+
 }
@@ -0,0 +1,276 @@
+package com.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 敏感词过滤器的运行指标:扫描次数、字符数、命中次数、每个敏感词的命中次数、扫描耗时分布、构建耗时、状态数及内存估算值<br>
+ * 计数器使用分段累加的LongAdder,扫描线程之间没有竞争;扫描耗时按2的幂分桶统计,百分位数返回所在桶的上界<br>
+ * 通过{@link DFASensitiveWordFilter#setMetrics(SensitiveWordMetrics)}设置后,之后构建的过滤器开始统计;
+ * 多个过滤器可共享同一个实例,状态数和内存估算值取最近一次构建的过滤器<br>
+ * 构建自动机时使用的DFANode/AVLTree结点只在构建期间存在,内存估算值统计的是编译后常驻内存的自动机
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public class SensitiveWordMetrics implements SensitiveWordMetricsMBean {
+
+    /* JMX中返回的命中次数最多的敏感词数量*/
+    private static final int TOP_WORDS = 20;
+
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder chars = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LatencyHistogram scanLatency = new LatencyHistogram();
+    private final ConcurrentMap<String, LongAdder> wordHits = new ConcurrentHashMap<>();
+    private final LongAdder builds = new LongAdder();
+    private final LongAccumulator maxBuildNanos = new LongAccumulator(Math::max, 0);
+    private final List<MetricsListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile long lastBuildNanos;
+    private volatile int stateCount;
+    private volatile long estimatedBytes;
+
+    /**
+     * 添加指标回调
+     *
+     * @param listener
+     */
+    public void addListener(MetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(MetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    void recordScan(long count, long nanos) {
+        scans.increment();
+        chars.add(count);
+        scanLatency.record(nanos);
+        for (MetricsListener listener : listeners) {
+            listener.onScan(count, nanos);
+        }
+    }
+
+    void recordHit(String word) {
+        hits.increment();
+        LongAdder counter = wordHits.get(word);
+        if (counter == null) {
+            counter = wordHits.computeIfAbsent(word, key -> new LongAdder());
+        }
+        counter.increment();
+        for (MetricsListener listener : listeners) {
+            listener.onHit(word);
+        }
+    }
+
+    void recordBuild(long nanos, int states, long bytes) {
+        builds.increment();
+        maxBuildNanos.accumulate(nanos);
+        lastBuildNanos = nanos;
+        stateCount = states;
+        estimatedBytes = bytes;
+        for (MetricsListener listener : listeners) {
+            listener.onBuild(nanos, states, bytes);
+        }
+    }
+
+    /**
+     * 注册到平台MBeanServer,ObjectName为com.util:type=SensitiveWordMetrics,name=给定名称
+     *
+     * @param name 指标名称,eg:词库名称
+     * @return 注册使用的ObjectName
+     * @throws JMException 同名MBean已注册
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * 从平台MBeanServer注销,没有注册时忽略
+     *
+     * @param name 注册时使用的指标名称
+     * @throws JMException
+     */
+    public void unregister(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = objectName(name);
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("com.util:type=SensitiveWordMetrics,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * 返回每个敏感词的命中次数
+     *
+     * @return
+     */
+    public Map<String, Long> getWordHitCounts() {
+        Map<String, Long> counts = Maps.newHashMapWithExpectedSize(wordHits.size());
+        wordHits.forEach((word, counter) -> counts.put(word, counter.sum()));
+        return counts;
+    }
+
+    @Override
+    public long getScanCount() {
+        return scans.sum();
+    }
+
+    @Override
+    public long getCharCount() {
+        return chars.sum();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public double getCharsPerSecond() {
+        long nanos = scanLatency.total();
+        return nanos == 0 ? 0 : chars.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public long getScanLatencyMeanNanos() {
+        long count = scanLatency.count();
+        return count == 0 ? 0 : scanLatency.total() / count;
+    }
+
+    @Override
+    public long getScanLatencyP50Nanos() {
+        return scanLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getScanLatencyP99Nanos() {
+        return scanLatency.percentile(0.99);
+    }
+
+    @Override
+    public long getBuildCount() {
+        return builds.sum();
+    }
+
+    @Override
+    public long getLastBuildMillis() {
+        return lastBuildNanos / 1000000;
+    }
+
+    @Override
+    public long getMaxBuildMillis() {
+        return maxBuildNanos.get() / 1000000;
+    }
+
+    @Override
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public String[] getTopHitWords() {
+        List<Map.Entry<String, Long>> counts = Lists.newArrayList(getWordHitCounts().entrySet());
+        counts.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        String[] words = new String[Math.min(TOP_WORDS, counts.size())];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = counts.get(i).getKey() + "=" + counts.get(i).getValue();
+        }
+        return words;
+    }
+
+    @Override
+    public void reset() {
+        scans.reset();
+        chars.reset();
+        hits.reset();
+        scanLatency.reset();
+        wordHits.clear();
+        builds.reset();
+        maxBuildNanos.reset();
+        lastBuildNanos = 0;
+    }
+
+    /**
+     * 按耗时的二进制位数分桶的耗时分布,第i个桶统计[2^(i-1), 2^i)纳秒的耗时
+     */
+    private static final class LatencyHistogram {
+        private final LongAdder[] buckets = new LongAdder[Long.SIZE + 1];
+        private final LongAdder total = new LongAdder();
+
+        private LatencyHistogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos) {
+            nanos = Math.max(nanos, 0);
+            buckets[Long.SIZE - Long.numberOfLeadingZeros(nanos)].increment();
+            total.add(nanos);
+        }
+
+        private long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        private long total() {
+            return total.sum();
+        }
+
+        /**
+         * @return 百分位数所在桶的上界(纳秒)
+         */
+        private long percentile(double percentile) {
+            long[] counts = new long[buckets.length];
+            long count = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+                count += counts[i];
+            }
+            long rank = (long) Math.ceil(count * percentile);
+            for (int i = 0; i < counts.length; i++) {
+                rank -= counts[i];
+                if (rank <= 0 && counts[i] > 0) {
+                    return i >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+                }
+            }
+            return 0;
+        }
+
+        private void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            total.reset();
+        }
+    }
+}
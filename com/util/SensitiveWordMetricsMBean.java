@@ -0,0 +1,61 @@
+package com.util;
+
+/**
+ * {@link SensitiveWordMetrics}通过JMX暴露的属性和操作
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public interface SensitiveWordMetricsMBean {
+
+    long getScanCount();
+
+    long getCharCount();
+
+    long getHitCount();
+
+    /**
+     * 扫描吞吐量:每秒扫描耗时内处理的字符数
+     *
+     * @return
+     */
+    double getCharsPerSecond();
+
+    long getScanLatencyMeanNanos();
+
+    long getScanLatencyP50Nanos();
+
+    long getScanLatencyP99Nanos();
+
+    long getBuildCount();
+
+    long getLastBuildMillis();
+
+    long getMaxBuildMillis();
+
+    /**
+     * 最近一次构建的自动机状态数
+     *
+     * @return
+     */
+    int getStateCount();
+
+    /**
+     * 最近一次构建的自动机占用内存的估算值
+     *
+     * @return
+     */
+    long getEstimatedBytes();
+
+    /**
+     * 命中次数最多的敏感词,格式为"敏感词=次数"
+     *
+     * @return
+     */
+    String[] getTopHitWords();
+
+    /**
+     * 清零所有计数器,状态数和内存估算值保留
+     */
+    void reset();
+}
@@ -0,0 +1,232 @@
+package com.util;
+
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按名称管理多个敏感词过滤器,同一个JVM中可以同时使用多套词库(eg:按租户、地区区分)<br>
+ * 分层词库在一个基础词库上叠加少量敏感词:直接共享基础词库的自动机,只为叠加的敏感词构建小自动机,
+ * 扫描时一次遍历同时匹配两层;基础词库更新后依赖它的分层词库自动在新的基础过滤器上重新叠加<br>
+ * 注册表中保存的过滤器都是不可变快照,更新时整体替换,扫描线程不需要加锁;
+ * 注册和删除词库会改变词库之间的依赖关系,在同一个锁内检查并修改,不会留下基础词库已删除的分层词库
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public class SensitiveWordRegistry {
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    /* 注册和删除词库时持有,保证依赖检查和修改是原子的*/
+    private final Object structureLock = new Object();
+    private final CharNormalizer charNormalizer;
+    private final boolean minimized;
+
+    /**
+     * @param charNormalizer 所有词库使用的字符归一化规则,为null时不做归一化
+     * @param minimized      基础词库是否构建最小化自动机,见{@link MinimizedDFA}
+     */
+    public SensitiveWordRegistry(CharNormalizer charNormalizer, boolean minimized) {
+        this.charNormalizer = charNormalizer;
+        this.minimized = minimized;
+    }
+
+    /**
+     * @param charNormalizer 所有词库使用的字符归一化规则,为null时不做归一化
+     */
+    public SensitiveWordRegistry(CharNormalizer charNormalizer) {
+        this(charNormalizer, false);
+    }
+
+    public SensitiveWordRegistry() {
+        this(null);
+    }
+
+    /**
+     * 使用给定的敏感词构建并注册一个基础词库,同名词库已存在时替换;依赖该词库的分层词库重新叠加
+     *
+     * @param name  词库名称
+     * @param words 敏感词
+     * @return 新注册的过滤器
+     */
+    public DFASensitiveWordFilter register(String name, List<String> words) {
+        return register(name, DFASensitiveWordFilter.build(words, Collections.emptyList(), charNormalizer, minimized));
+    }
+
+    /**
+     * 注册一个已构建的过滤器作为基础词库(eg:通过镜像文件加载的过滤器),同名词库已存在时替换
+     *
+     * @param name   词库名称
+     * @param filter 过滤器
+     * @return
+     */
+    public DFASensitiveWordFilter register(String name, DFASensitiveWordFilter filter) {
+        synchronized (structureLock) {
+            entries.put(name, new Entry(filter, null, null, null));
+        }
+        rebuildLayers(name);
+        return filter;
+    }
+
+    /**
+     * 在基础词库上注册一个分层词库,不复制基础词库的自动机
+     *
+     * @param name     分层词库名称
+     * @param baseName 基础词库名称,必须是已注册的基础词库
+     * @param words    叠加的敏感词
+     * @return 新注册的过滤器
+     * @throws IllegalArgumentException 基础词库不存在或本身是分层词库
+     */
+    public DFASensitiveWordFilter registerLayer(String name, String baseName, List<String> words) {
+        if (name.equals(baseName)) {
+            throw new IllegalArgumentException("layer can not be based on itself: " + name);
+        }
+        synchronized (structureLock) {
+            checkNotBase(name);
+            Entry base = entries.get(baseName);
+            if (base == null || base.baseName != null) {
+                throw new IllegalArgumentException("no base dictionary: " + baseName);
+            }
+            Entry entry = new Entry(null, baseName, Lists.newArrayList(words), Collections.emptyList()).layer(base);
+            entries.put(name, entry);
+        }
+        //注册期间基础词库可能已被替换,始终叠加在最新的基础过滤器上
+        rebuildLayers(baseName);
+        return get(name);
+    }
+
+    /**
+     * 返回给定名称的过滤器
+     *
+     * @param name 词库名称
+     * @return 未注册时返回null
+     */
+    public DFASensitiveWordFilter get(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? null : entry.filter;
+    }
+
+    /**
+     * 删除一个词库
+     *
+     * @param name 词库名称
+     * @throws IllegalStateException 还有分层词库依赖该词库
+     */
+    public void unregister(String name) {
+        synchronized (structureLock) {
+            checkNotBase(name);
+            entries.remove(name);
+        }
+    }
+
+    /**
+     * 返回所有已注册的词库名称
+     *
+     * @return
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * 向词库中添加一个敏感词,只重建增量敏感词的自动机;基础词库的修改同时作用于依赖它的分层词库
+     *
+     * @param name 词库名称
+     * @param word 敏感词
+     * @return 修改后的过滤器
+     */
+    public DFASensitiveWordFilter addWord(String name, String word) {
+        Entry entry = entries.computeIfPresent(name, (key, current) -> {
+            if (current.baseName == null) {
+                return new Entry(current.filter.withWords(Collections.singletonList(word)), null, null, null);
+            }
+            List<String> added = Lists.newArrayList(current.addedWords);
+            added.add(word);
+            List<String> removed = Lists.newArrayList(current.removedWords);
+            removed.remove(word);
+            return new Entry(current.filter.withWords(Collections.singletonList(word)), current.baseName, added, removed);
+        });
+        return afterUpdate(name, entry);
+    }
+
+    /**
+     * 从词库中删除一个敏感词,分层词库中删除基础词库的敏感词只对该分层词库生效
+     *
+     * @param name 词库名称
+     * @param word 敏感词
+     * @return 修改后的过滤器
+     */
+    public DFASensitiveWordFilter removeWord(String name, String word) {
+        Entry entry = entries.computeIfPresent(name, (key, current) -> {
+            if (current.baseName == null) {
+                return new Entry(current.filter.withoutWords(Collections.singletonList(word)), null, null, null);
+            }
+            List<String> added = Lists.newArrayList(current.addedWords);
+            added.remove(word);
+            List<String> removed = Lists.newArrayList(current.removedWords);
+            removed.add(word);
+            return new Entry(current.filter.withoutWords(Collections.singletonList(word)), current.baseName, added, removed);
+        });
+        return afterUpdate(name, entry);
+    }
+
+    private DFASensitiveWordFilter afterUpdate(String name, Entry entry) {
+        if (entry == null) {
+            throw new IllegalArgumentException("no dictionary: " + name);
+        }
+        if (entry.baseName == null) {
+            rebuildLayers(name);
+        }
+        return entry.filter;
+    }
+
+    /**
+     * 在基础词库最新的过滤器上重新叠加依赖它的分层词库
+     */
+    private void rebuildLayers(String baseName) {
+        for (String name : entries.keySet()) {
+            entries.computeIfPresent(name, (key, entry) -> {
+                if (!baseName.equals(entry.baseName)) {
+                    return entry;
+                }
+                Entry base = entries.get(baseName);
+                return base == null ? entry : entry.layer(base);
+            });
+        }
+    }
+
+    private void checkNotBase(String name) {
+        for (Entry entry : entries.values()) {
+            if (name.equals(entry.baseName)) {
+                throw new IllegalStateException("dictionary is used as a base: " + name);
+            }
+        }
+    }
+
+    /**
+     * 注册表中的一个词库,分层词库同时记录在基础词库上的修改,基础词库更新后重新应用
+     */
+    private static final class Entry {
+        private final DFASensitiveWordFilter filter;
+        /* 基础词库名称,基础词库本身为null*/
+        private final String baseName;
+        private final List<String> addedWords;
+        private final List<String> removedWords;
+
+        private Entry(DFASensitiveWordFilter filter, String baseName, List<String> addedWords, List<String> removedWords) {
+            this.filter = filter;
+            this.baseName = baseName;
+            this.addedWords = addedWords;
+            this.removedWords = removedWords;
+        }
+
+        private Entry layer(Entry base) {
+            DFASensitiveWordFilter layered = base.filter.withWords(addedWords).withoutWords(removedWords);
+            return new Entry(layered, baseName, addedWords, removedWords);
+        }
+    }
+}
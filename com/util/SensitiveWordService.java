@@ -0,0 +1,238 @@
+package com.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * 异步敏感词过滤服务,把大量线程各自提交的短文本合并为小批次处理<br>
+ * 请求先放入有界队列,由一个分发线程取出:拿到第一个请求后最多再等待maxWait,凑满maxBatchSize个请求或超时后作为一批提交给线程池;
+ * 同一批请求使用同一个过滤器快照在一个线程中连续扫描,自动机的状态表保持在缓存中<br>
+ * 同时执行的批次数不超过parallelism,因此线程池可以是不限线程数的(eg:每个任务一个虚拟线程);
+ * 所有批次都在执行时请求在队列中积压,队列满后提交请求的线程阻塞等待,形成背压<br>
+ * 请求的最长排队时间由maxWait和批次执行时间决定,不会因为等待凑满批次而无限延长
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public class SensitiveWordService implements AutoCloseable {
+
+    private final Supplier<DFASensitiveWordFilter> filters;
+    private final Executor executor;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Request<?>> queue;
+    /* 限制同时执行的批次数*/
+    private final Semaphore running;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    /**
+     * @param filters       返回当前过滤器快照,eg:DFASensitiveWordFilter::getInstance
+     * @param executor      执行批次的线程池
+     * @param parallelism   同时执行的最大批次数
+     * @param maxBatchSize  每批最多合并的请求数
+     * @param maxWait       第一个请求到达后等待凑批的最长时间
+     * @param unit          maxWait的时间单位
+     * @param queueCapacity 等待合并的请求数上限,超过时提交请求的线程阻塞
+     */
+    public SensitiveWordService(Supplier<DFASensitiveWordFilter> filters, Executor executor, int parallelism,
+                                int maxBatchSize, long maxWait, TimeUnit unit, int queueCapacity) {
+        if (parallelism <= 0 || maxBatchSize <= 0 || maxWait < 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("parallelism: " + parallelism + ", maxBatchSize: " + maxBatchSize
+                    + ", maxWait: " + maxWait + ", queueCapacity: " + queueCapacity);
+        }
+        this.filters = filters;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.running = new Semaphore(parallelism);
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("sensitive-word-dispatcher-%d").setDaemon(true).build();
+        this.dispatcher = threadFactory.newThread(this::dispatch);
+        dispatcher.start();
+    }
+
+    /**
+     * 使用当前发布的过滤器,在ForkJoinPool.commonPool()上执行,每批最多64个请求,最多等待200微秒
+     */
+    public SensitiveWordService() {
+        this(DFASensitiveWordFilter::getInstance, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(),
+                64, 200, TimeUnit.MICROSECONDS, 8192);
+    }
+
+    /**
+     * 异步检查给定的字符串是否存在敏感词
+     *
+     * @param text
+     * @return
+     */
+    public CompletableFuture<Boolean> existSensitiveWord(String text) {
+        return submit(text, DFASensitiveWordFilter::existSensitiveWord);
+    }
+
+    /**
+     * 异步删除字符串中的敏感词
+     *
+     * @param text
+     * @return
+     */
+    public CompletableFuture<String> deleteSensitiveWord(String text) {
+        return submit(text, (filter, value) -> new String(filter.delete(value.toCharArray())));
+    }
+
+    /**
+     * 异步使用给定的字符替换字符串中的敏感词
+     *
+     * @param text       进行敏感词替换的字符串
+     * @param shieldChar 替换后的字符
+     * @return
+     */
+    public CompletableFuture<String> shieldSensitiveWord(String text, char shieldChar) {
+        return submit(text, (filter, value) -> new String(filter.shield(value.toCharArray(), shieldChar)));
+    }
+
+    /**
+     * 返回等待合并的请求数
+     *
+     * @return
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * 停止接收请求,已在队列中或已取出但未提交的请求以RejectedExecutionException结束,已提交的批次继续执行完成
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        rejectQueued();
+    }
+
+    /**
+     * 请求放入队列,队列满时阻塞直到有空间
+     */
+    private <T> CompletableFuture<T> submit(String text, BiFunction<DFASensitiveWordFilter, String, T> operation) {
+        Request<T> request = new Request<>(text, operation);
+        if (closed) {
+            request.future.completeExceptionally(new RejectedExecutionException("service closed"));
+            return request.future;
+        }
+        try {
+            queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.future.completeExceptionally(e);
+            return request.future;
+        }
+        if (closed) {
+            //关闭期间放入的请求可能不会再被分发线程取出
+            rejectQueued();
+        }
+        return request.future;
+    }
+
+    private void dispatch() {
+        //已从队列取出但还未提交的批次,分发线程被中断时需要以RejectedExecutionException结束
+        List<Request<?>> batch = null;
+        try {
+            while (!closed) {
+                batch = Lists.newArrayListWithCapacity(maxBatchSize);
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    //已积压的请求直接取出,不需要等待
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Request<?> request = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (request == null) {
+                        break;
+                    }
+                    batch.add(request);
+                }
+                running.acquire();
+                List<Request<?>> submitted = batch;
+                batch = null;
+                try {
+                    executor.execute(() -> {
+                        try {
+                            process(submitted);
+                        } finally {
+                            running.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    running.release();
+                    fail(submitted, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            //close时中断分发线程
+        }
+        if (batch != null) {
+            fail(batch, new RejectedExecutionException("service closed"));
+        }
+        rejectQueued();
+    }
+
+    private void process(List<Request<?>> batch) {
+        DFASensitiveWordFilter filter;
+        try {
+            filter = filters.get();
+        } catch (Throwable e) {
+            fail(batch, e);
+            return;
+        }
+        for (Request<?> request : batch) {
+            request.run(filter);
+        }
+    }
+
+    private void rejectQueued() {
+        Request<?> request;
+        while ((request = queue.poll()) != null) {
+            request.future.completeExceptionally(new RejectedExecutionException("service closed"));
+        }
+    }
+
+    private static void fail(List<Request<?>> batch, Throwable e) {
+        for (Request<?> request : batch) {
+            request.future.completeExceptionally(e);
+        }
+    }
+
+    private static final class Request<T> {
+        private final String text;
+        private final BiFunction<DFASensitiveWordFilter, String, T> operation;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Request(String text, BiFunction<DFASensitiveWordFilter, String, T> operation) {
+            this.text = text;
+            this.operation = operation;
+        }
+
+        private void run(DFASensitiveWordFilter filter) {
+            try {
+                future.complete(operation.apply(filter, text));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.util;
+
+import com.google.common.collect.Lists;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 直接在UTF-8字节上进行敏感词匹配,敏感词按UTF-8编码后逐字节构建自动机,扫描时不需要把字节解码成字符<br>
+ * UTF-8编码是自同步的,一个完整字符的编码不会出现在另一个字符编码的中间,因此字节层面找到的敏感词
+ * 总是落在字符边界上,与解码后匹配的结果一致;返回的位置均为字节下标<br>
+ * 字节自动机只包含字面敏感词,配置了归一化规则或敏感词模式的过滤器不能创建字节过滤器,见{@link DFASensitiveWordFilter#utf8()}
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public final class Utf8SensitiveWordFilter {
+
+    private final DFASensitiveWordFilter filter;
+    private final CompiledDFA dfa;
+
+    /**
+     * @param filter 敏感词编号与之一致的过滤器
+     * @param words  下标为敏感词编号的敏感词,已删除的敏感词为null
+     */
+    Utf8SensitiveWordFilter(DFASensitiveWordFilter filter, List<String> words) {
+        this.filter = filter;
+        List<String> encodedWords = Lists.newArrayListWithCapacity(words.size());
+        for (String word : words) {
+            //每个字节作为一个0-255的字符输入自动机
+            encodedWords.add(word == null ? null : new String(word.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1));
+        }
+        this.dfa = CompiledDFA.build(encodedWords);
+    }
+
+    /**
+     * 检查字节缓冲区[position, limit)中是否存在敏感词,不改变缓冲区的position
+     *
+     * @param buffer 堆内或直接内存缓冲区
+     * @return
+     */
+    public boolean existSensitiveWord(ByteBuffer buffer) {
+        boolean[] exist = new boolean[1];
+        scan(buffer, (start, end, wordId) -> {
+            exist[0] = true;
+            return false;
+        });
+        return exist[0];
+    }
+
+    /**
+     * 检查字节数组[from, to)中是否存在敏感词
+     *
+     * @param bytes
+     * @param from  开始位置(包含)
+     * @param to    结束位置(不包含)
+     * @return
+     */
+    public boolean existSensitiveWord(byte[] bytes, int from, int to) {
+        boolean[] exist = new boolean[1];
+        scan(bytes, from, to, (start, end, wordId) -> {
+            exist[0] = true;
+            return false;
+        });
+        return exist[0];
+    }
+
+    /**
+     * 扫描字节缓冲区[position, limit),回调的位置为缓冲区中的绝对下标,不改变缓冲区的position
+     *
+     * @param buffer   堆内或直接内存缓冲区
+     * @param listener 敏感词回调,返回false时停止扫描
+     */
+    public void scan(ByteBuffer buffer, MatchListener listener) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            scan(buffer.array(), offset + buffer.position(), offset + buffer.limit(), offset, listener);
+            return;
+        }
+        int state = CompiledDFA.ROOT;
+        for (int i = buffer.position(), limit = buffer.limit(); i < limit; i++) {
+            state = dfa.next(state, (char) (buffer.get(i) & 0xFF));
+            int length = dfa.matchLength(state);
+            if (length > 0) {
+                if (!listener.onMatch(i + 1 - length, i + 1, dfa.wordId(dfa.output(state)))) {
+                    return;
+                }
+                state = CompiledDFA.ROOT;
+            }
+        }
+    }
+
+    /**
+     * 扫描字节数组[from, to),扫描过程中不产生任何对象分配
+     *
+     * @param bytes
+     * @param from     开始位置(包含)
+     * @param to       结束位置(不包含)
+     * @param listener 敏感词回调,返回false时停止扫描
+     */
+    public void scan(byte[] bytes, int from, int to, MatchListener listener) {
+        if (from < 0 || to > bytes.length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + bytes.length);
+        }
+        scan(bytes, from, to, 0, listener);
+    }
+
+    /**
+     * 扫描字节数组[from, to),回调的位置减去offset(堆内缓冲区在数组中的偏移)
+     */
+    private void scan(byte[] bytes, int from, int to, int offset, MatchListener listener) {
+        int state = CompiledDFA.ROOT;
+        for (int i = from; i < to; i++) {
+            state = dfa.next(state, (char) (bytes[i] & 0xFF));
+            int length = dfa.matchLength(state);
+            if (length > 0) {
+                if (!listener.onMatch(i + 1 - length - offset, i + 1 - offset, dfa.wordId(dfa.output(state)))) {
+                    return;
+                }
+                state = CompiledDFA.ROOT;
+            }
+        }
+    }
+
+    /**
+     * 返回敏感词编号对应的敏感词
+     *
+     * @param wordId
+     * @return
+     */
+    public String getWord(int wordId) {
+        return filter.getWord(wordId);
+    }
+}
@@ -0,0 +1,83 @@
+package com.util;
+
+/**
+ * 只读敏感词自动机,状态使用int编号,开始状态编号为{@link #ROOT}
+ *
+ * @Author zhangweixin
+ * @Date 2026/10/18
+ */
+public interface WordDFA {
+
+    /* 开始状态编号*/
+    int ROOT = 0;
+
+    /**
+     * 输入一个字符进行状态转移,当前状态没有对应的下一状态时沿失败指针转移,直到回到开始状态
+     *
+     * @param state 当前状态
+     * @param c     输入字符
+     * @return 转移后的状态
+     */
+    int next(int state, char c);
+
+    /**
+     * 沿敏感词链(不使用失败指针)查找敏感词结束的状态
+     *
+     * @param word
+     * @return 敏感词不存在时返回-1
+     */
+    int find(CharSequence word);
+
+    /**
+     * 返回状态的失败指针
+     *
+     * @param state
+     * @return
+     */
+    int failure(int state);
+
+    /**
+     * 返回以该状态结尾的最长敏感词的结束状态,它总在该状态的失败链上(包含自身);没有敏感词以该状态结尾时返回开始状态
+     *
+     * @param state
+     * @return
+     */
+    int output(int state);
+
+    /**
+     * 返回敏感词结束状态对应的敏感词编号
+     *
+     * @param state
+     * @return 不是敏感词结束状态时返回-1
+     */
+    int wordId(int state);
+
+    /**
+     * 以该状态结尾的最长敏感词长度,没有敏感词以该状态结尾时为0
+     *
+     * @param state
+     * @return
+     */
+    int matchLength(int state);
+
+    /**
+     * 返回状态数
+     *
+     * @return
+     */
+    int stateCount();
+
+    /**
+     * 返回最长敏感词长度
+     *
+     * @return
+     */
+    int maxDepth();
+
+    /**
+     * 返回自动机占用内存的估算值(字节),内存映射的自动机包含映射区域
+     *
+     * @return
+     */
+    long estimatedBytes();
+}